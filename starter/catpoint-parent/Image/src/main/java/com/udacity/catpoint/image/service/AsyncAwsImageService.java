@@ -0,0 +1,312 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.Image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Image Recognition Service backed by the asynchronous Rekognition client. Uses the same
+ * config.properties keys as {@link AwsImageService}, plus these optional ones:
+ *      aws.endpoint=[endpoint to call instead of the regional one, for example a local stand-in]
+ *      aws.maxInFlight=[maximum concurrent detectLabels calls, default 8]
+ *      aws.requestsPerSecond=[sustained request rate, default 5]
+ *      aws.burst=[requests allowed at once after an idle period, default 10]
+ *
+ * Scans beyond the in-flight limit or the rate limit wait in a queue instead of being sent, so
+ * load spikes turn into queueing rather than throttling errors. Scans of byte-for-byte identical
+ * images with the same threshold that overlap in time share one request; each caller still gets
+ * its own future, so cancelling one does not affect the others. Closing the service fails every
+ * scan that has not finished.
+ */
+public class AsyncAwsImageService implements ImageService, AutoCloseable {
+
+	private static final int DEFAULT_MAX_IN_FLIGHT = 8;
+	private static final double DEFAULT_REQUESTS_PER_SECOND = 5;
+	private static final int DEFAULT_BURST = 10;
+	private static final int DEFAULT_MAX_EDGE = 1024;
+	private static final float DEFAULT_JPEG_QUALITY = 0.85f;
+
+	private final Logger log = LoggerFactory.getLogger(AsyncAwsImageService.class);
+	private final Supplier<RekognitionAsyncClient> clientFactory;
+	private RekognitionAsyncClient rekognitionClient; //built on the first request, guarded by this
+	private final JpegImageEncoder encoder;
+	private final Semaphore inFlight;
+	private final TokenBucket rateLimiter;
+	private final Deque<Runnable> waiting = new ConcurrentLinkedDeque<>();
+	private final ConcurrentHashMap<RequestKey, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+	private final AtomicBoolean retryScheduled = new AtomicBoolean();
+	private volatile boolean closed;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "catpoint-rekognition-limiter");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * Uses config.properties on the classpath.
+	 */
+	public AsyncAwsImageService() {
+		this(loadProperties());
+	}
+
+	/**
+	 * Builds the client from the given properties when the first request is sent, so creating the
+	 * service does not pay for loading the SDK.
+	 */
+	public AsyncAwsImageService(Properties props) {
+		this(() -> buildClient(props),
+				Integer.parseInt(props.getProperty("aws.maxInFlight", String.valueOf(DEFAULT_MAX_IN_FLIGHT))),
+				Double.parseDouble(props.getProperty("aws.requestsPerSecond", String.valueOf(DEFAULT_REQUESTS_PER_SECOND))),
+				Integer.parseInt(props.getProperty("aws.burst", String.valueOf(DEFAULT_BURST))),
+				new JpegImageEncoder(
+						Integer.parseInt(props.getProperty("aws.image.maxEdge", String.valueOf(DEFAULT_MAX_EDGE))),
+						Float.parseFloat(props.getProperty("aws.image.quality", String.valueOf(DEFAULT_JPEG_QUALITY)))));
+	}
+
+	/**
+	 * @param rekognitionClient Client used for every request
+	 * @param maxInFlight Maximum number of requests running at once
+	 * @param requestsPerSecond Sustained request rate
+	 * @param burst Number of requests that may be sent at once after an idle period
+	 * @param encoder Encoder that prepares images for upload
+	 */
+	public AsyncAwsImageService(RekognitionAsyncClient rekognitionClient, int maxInFlight,
+								double requestsPerSecond, int burst, JpegImageEncoder encoder) {
+		this(() -> rekognitionClient, maxInFlight, requestsPerSecond, burst, encoder);
+	}
+
+	private AsyncAwsImageService(Supplier<RekognitionAsyncClient> clientFactory, int maxInFlight,
+								 double requestsPerSecond, int burst, JpegImageEncoder encoder) {
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("In-flight limit must be positive");
+		}
+		this.clientFactory = clientFactory;
+		this.inFlight = new Semaphore(maxInFlight);
+		this.rateLimiter = new TokenBucket(requestsPerSecond, burst);
+		this.encoder = encoder;
+	}
+
+	@Override
+	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+		try {
+			return imageContainsCatAsync(image, confidenceThreshhold).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+		if (closed) {
+			return CompletableFuture.failedFuture(closedException());
+		}
+		byte[] bytes;
+		try {
+			bytes = encoder.encode(image);
+		} catch (IOException ioe) {
+			log.error("Error building image byte array", ioe);
+			return CompletableFuture.completedFuture(false);
+		}
+		RequestKey key = new RequestKey(bytes, confidenceThreshhold);
+		CompletableFuture<Boolean> created = new CompletableFuture<>();
+		CompletableFuture<Boolean> existing = pending.putIfAbsent(key, created);
+		if (existing != null) {
+			return existing.thenApply(Function.identity()); //an identical scan is already queued or running
+		}
+		created.whenComplete((r, t) -> pending.remove(key, created));
+		waiting.add(() -> send(key, created));
+		if (closed) {
+			//close() may have failed the pending scans before this one was added
+			created.completeExceptionally(closedException());
+		}
+		drain();
+		return created.thenApply(Function.identity());
+	}
+
+	/**
+	 * The executor argument is ignored: requests are already asynchronous and are paced by this service.
+	 */
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold, Executor executor) {
+		return imageContainsCatAsync(image, confidenceThreshhold);
+	}
+
+	/**
+	 * @return Number of scans waiting for an in-flight slot or a rate limit token
+	 */
+	public int getQueuedRequests() {
+		return waiting.size();
+	}
+
+	/**
+	 * Stops the rate limiter and closes the client. Scans that are still waiting or running fail
+	 * with an IllegalStateException, as do scans started afterwards.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			if (rekognitionClient != null) {
+				rekognitionClient.close();
+			}
+		}
+		scheduler.shutdownNow();
+		waiting.clear();
+		pending.values().forEach(scan -> scan.completeExceptionally(closedException()));
+	}
+
+	private synchronized RekognitionAsyncClient client() {
+		if (closed) {
+			throw closedException();
+		}
+		if (rekognitionClient == null) {
+			rekognitionClient = clientFactory.get();
+		}
+		return rekognitionClient;
+	}
+
+	private void send(RequestKey key, CompletableFuture<Boolean> result) {
+		CompletableFuture<Boolean> call;
+		try {
+			Image awsImage = Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(key.bytes)).build();
+			DetectLabelsRequest request = DetectLabelsRequest.builder().image(awsImage).minConfidence(key.confidenceThreshhold).build();
+			call = client().detectLabels(request).thenApply(AwsImageService::containsCat);
+		} catch (RuntimeException e) {
+			call = CompletableFuture.failedFuture(e);
+		}
+		call.whenComplete((cat, t) -> {
+			inFlight.release();
+			drain();
+			if (t != null) {
+				result.completeExceptionally(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+			} else {
+				result.complete(cat);
+			}
+		});
+	}
+
+	/**
+	 * Starts as many waiting requests as the in-flight limit and the rate limiter allow. If requests
+	 * are left waiting only because of the rate limit, a retry is scheduled for when the next token is due.
+	 */
+	private void drain() {
+		while (!waiting.isEmpty() && inFlight.tryAcquire()) {
+			Runnable next = waiting.poll();
+			if (next == null) {
+				inFlight.release();
+				continue; //another thread took it; look again in case a scan was queued meanwhile
+			}
+			if (!rateLimiter.tryAcquire()) {
+				waiting.addFirst(next);
+				inFlight.release();
+				scheduleRetry();
+				return;
+			}
+			next.run();
+		}
+	}
+
+	private void scheduleRetry() {
+		if (closed || !retryScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			scheduler.schedule(() -> {
+				retryScheduled.set(false);
+				drain();
+			}, Math.max(1, rateLimiter.nanosUntilNextToken()), TimeUnit.NANOSECONDS);
+		} catch (RejectedExecutionException e) {
+			retryScheduled.set(false); //closed meanwhile, close() fails the waiting scans
+		}
+	}
+
+	private static IllegalStateException closedException() {
+		return new IllegalStateException("Image service is closed");
+	}
+
+	private static Properties loadProperties() {
+		Properties props = new Properties();
+		try (InputStream is = AsyncAwsImageService.class.getClassLoader().getResourceAsStream("config.properties")) {
+			if (is == null) {
+				throw new IOException("config.properties not found on the classpath");
+			}
+			props.load(is);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException("Unable to initialize AWS Rekognition, no properties file found", ioe);
+		}
+		return props;
+	}
+
+	private static RekognitionAsyncClient buildClient(Properties props) {
+		RekognitionAsyncClient.Builder builder = RekognitionAsyncClient.builder()
+				.credentialsProvider(StaticCredentialsProvider.create(
+						AwsBasicCredentials.create(props.getProperty("aws.id"), props.getProperty("aws.secret"))))
+				.region(Region.of(props.getProperty("aws.region")));
+		String endpoint = props.getProperty("aws.endpoint");
+		if (endpoint != null && !endpoint.isBlank()) {
+			builder.endpointOverride(URI.create(endpoint));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Identifies scans that would send exactly the same request.
+	 */
+	private static final class RequestKey {
+		private final byte[] bytes;
+		private final float confidenceThreshhold;
+		private final int hash;
+
+		RequestKey(byte[] bytes, float confidenceThreshhold) {
+			this.bytes = bytes;
+			this.confidenceThreshhold = confidenceThreshhold;
+			this.hash = 31 * Arrays.hashCode(bytes) + Float.hashCode(confidenceThreshhold);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof RequestKey)) return false;
+			RequestKey other = (RequestKey) o;
+			return hash == other.hash
+					&& Float.compare(confidenceThreshhold, other.confidenceThreshhold) == 0
+					&& Arrays.equals(bytes, other.bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
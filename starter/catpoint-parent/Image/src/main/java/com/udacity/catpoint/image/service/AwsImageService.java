@@ -12,9 +12,7 @@ import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
@@ -36,9 +34,19 @@ import java.util.stream.Collectors;
 public class AwsImageService implements ImageService {
 
 	//aws recommendation is to maintain only a single instance of client objects
-	private static RekognitionClient rekognitionClient;
+	private static RekognitionClient rekognitionClient; //built on the first scan, guarded by the class
+	//Rekognition does not need full resolution to find a cat, and smaller uploads are faster and cheaper
+	private static final int DEFAULT_MAX_EDGE = 1024;
+	private static final float DEFAULT_JPEG_QUALITY = 0.85f;
 	private Logger log = LoggerFactory.getLogger(AwsImageService.class);
+	private JpegImageEncoder encoder = new JpegImageEncoder(DEFAULT_MAX_EDGE, DEFAULT_JPEG_QUALITY);
+	private AwsCredentials awsCredentials;
+	private String awsRegion;
 
+	/**
+	 * Reads config.properties. The Rekognition client is only built when the first image is scanned,
+	 * since loading the SDK is by far the slowest part of starting up.
+	 */
 	public AwsImageService() {
 		Properties props = new Properties();
 		try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
@@ -50,13 +58,12 @@ public class AwsImageService implements ImageService {
 
 		String awsId = props.getProperty("aws.id");
 		String awsSecret = props.getProperty("aws.secret");
-		String awsRegion = props.getProperty("aws.region");
+		awsRegion = props.getProperty("aws.region");
+		encoder = new JpegImageEncoder(
+				Integer.parseInt(props.getProperty("aws.image.maxEdge", String.valueOf(DEFAULT_MAX_EDGE))),
+				Float.parseFloat(props.getProperty("aws.image.quality", String.valueOf(DEFAULT_JPEG_QUALITY))));
 
-		AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
-		rekognitionClient = RekognitionClient.builder()
-				.credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-				.region(Region.of(awsRegion))
-				.build();
+		awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
 	}
 
 	/**
@@ -68,17 +75,46 @@ public class AwsImageService implements ImageService {
 	@Override
 	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
 		Image awsImage = null;
-		try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-			ImageIO.write(image, "jpg", os);
-			awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+		try {
+			//the encoded array is never touched again, so the SDK can use it without copying
+			awsImage = Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(encoder.encode(image))).build();
 		} catch (IOException ioe) {
 			log.error("Error building image byte array", ioe);
 			return false;
 		}
 		DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
-		DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
+		DetectLabelsResponse response = client().detectLabels(detectLabelsRequest);
 		logLabelsForFun(response);
-		return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
+		return containsCat(response);
+	}
+
+	/**
+	 * True if any of the labels Rekognition returned names a cat.
+	 */
+	static boolean containsCat(DetectLabelsResponse response) {
+		return response.labels().stream().anyMatch(l -> l.name().toLowerCase().contains("cat"));
+	}
+
+	/**
+	 * @return The encoder used to prepare images for upload, including its size and timing totals
+	 */
+	public JpegImageEncoder getEncoder() {
+		return encoder;
+	}
+
+	private RekognitionClient client() {
+		synchronized (AwsImageService.class) {
+			if (rekognitionClient == null) {
+				if (awsCredentials == null) {
+					throw new IllegalStateException("AWS Rekognition is not configured, see config.properties");
+				}
+				rekognitionClient = RekognitionClient.builder()
+						.credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+						.region(Region.of(awsRegion))
+						.build();
+			}
+			return rekognitionClient;
+		}
 	}
 
 	private void logLabelsForFun(DetectLabelsResponse response) {
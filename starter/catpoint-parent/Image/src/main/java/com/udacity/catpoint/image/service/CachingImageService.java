@@ -0,0 +1,186 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ImageService decorator that remembers recent verdicts and reuses them for frames that look the
+ * same. A static camera sends nearly identical frames over and over, and every call to a remote
+ * service such as {@link AwsImageService} is slow and billed.
+ *
+ * Frames are compared by a 64 bit difference hash (dHash): the image is shrunk to 9x8 grey pixels
+ * and each bit records whether a pixel is brighter than its right-hand neighbour. Frames whose
+ * hashes differ in at most {@code maxDistance} bits are treated as the same picture. Verdicts are
+ * kept per confidence threshold in a bounded LRU and expire after {@code ttl}.
+ */
+public class CachingImageService implements ImageService {
+
+	private static final int HASH_WIDTH = 9;
+	private static final int HASH_HEIGHT = 8;
+
+	private final ImageService delegate;
+	private final int maxDistance;
+	private final long ttlNanos;
+	private final Map<CacheKey, CacheEntry> cache;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param delegate The service that classifies frames the cache has not seen
+	 * @param maxEntries Maximum number of verdicts kept
+	 * @param ttl How long a verdict may be reused
+	 * @param maxDistance Number of hash bits two frames may differ in and still share a verdict
+	 */
+	public CachingImageService(ImageService delegate, int maxEntries, Duration ttl, int maxDistance) {
+		if (maxEntries <= 0 || maxDistance < 0 || ttl.isNegative()) {
+			throw new IllegalArgumentException("Cache size must be positive and ttl and distance not negative");
+		}
+		this.delegate = delegate;
+		this.maxDistance = maxDistance;
+		this.ttlNanos = ttl.toNanos();
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	@Override
+	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+		long hash = differenceHash(image);
+		Boolean cached = lookup(hash, confidenceThreshhold);
+		if (cached != null) {
+			hits.increment();
+			return cached;
+		}
+		misses.increment();
+		boolean verdict = delegate.imageContainsCat(image, confidenceThreshhold);
+		synchronized (cache) {
+			cache.put(new CacheKey(hash, confidenceThreshhold), new CacheEntry(verdict, System.nanoTime()));
+		}
+		return verdict;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return Fraction of calls answered from the cache, or 0 if there have been no calls
+	 */
+	public double getHitRate() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	/**
+	 * Finds a live verdict for this hash, first by exact match and then by the closest near match.
+	 * Expired entries found along the way are dropped.
+	 */
+	private Boolean lookup(long hash, float confidenceThreshhold) {
+		long now = System.nanoTime();
+		synchronized (cache) {
+			CacheEntry exact = cache.get(new CacheKey(hash, confidenceThreshhold));
+			if (exact != null && now - exact.createdNanos <= ttlNanos) {
+				return exact.verdict;
+			}
+			if (maxDistance == 0) {
+				return null;
+			}
+			Boolean best = null;
+			CacheKey bestKey = null;
+			int bestDistance = Integer.MAX_VALUE;
+			for (Iterator<Map.Entry<CacheKey, CacheEntry>> it = cache.entrySet().iterator(); it.hasNext(); ) {
+				Map.Entry<CacheKey, CacheEntry> e = it.next();
+				if (now - e.getValue().createdNanos > ttlNanos) {
+					it.remove();
+					continue;
+				}
+				if (e.getKey().confidenceThreshhold != confidenceThreshhold) {
+					continue;
+				}
+				int distance = Long.bitCount(e.getKey().hash ^ hash);
+				if (distance <= maxDistance && distance < bestDistance) {
+					bestDistance = distance;
+					best = e.getValue().verdict;
+					bestKey = e.getKey();
+				}
+			}
+			if (bestKey != null) {
+				cache.get(bestKey); //refresh its LRU position
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Computes the 64 bit difference hash of the image.
+	 */
+	static long differenceHash(BufferedImage image) {
+		BufferedImage small = new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = small.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+		} finally {
+			g.dispose();
+		}
+		byte[] pixels = new byte[HASH_WIDTH * HASH_HEIGHT];
+		small.getRaster().getDataElements(0, 0, HASH_WIDTH, HASH_HEIGHT, pixels);
+		long hash = 0;
+		for (int y = 0; y < HASH_HEIGHT; y++) {
+			for (int x = 0; x < HASH_WIDTH - 1; x++) {
+				int left = pixels[y * HASH_WIDTH + x] & 0xff;
+				int right = pixels[y * HASH_WIDTH + x + 1] & 0xff;
+				hash = (hash << 1) | (left > right ? 1 : 0);
+			}
+		}
+		return hash;
+	}
+
+	private static final class CacheKey {
+		private final long hash;
+		private final float confidenceThreshhold;
+
+		CacheKey(long hash, float confidenceThreshhold) {
+			this.hash = hash;
+			this.confidenceThreshhold = confidenceThreshhold;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof CacheKey)) return false;
+			CacheKey other = (CacheKey) o;
+			return hash == other.hash && Float.compare(confidenceThreshhold, other.confidenceThreshhold) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Long.hashCode(hash) + Float.hashCode(confidenceThreshhold);
+		}
+	}
+
+	private static final class CacheEntry {
+		private final boolean verdict;
+		private final long createdNanos;
+
+		CacheEntry(boolean verdict, long createdNanos) {
+			this.verdict = verdict;
+			this.createdNanos = createdNanos;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.udacity.catpoint.image.service;
+
+/**
+ * Consecutive-failure circuit breaker. After {@code failureThreshold} failures in a row the circuit
+ * opens and calls are refused for {@code openNanos}; then a single trial call is let through, and its
+ * outcome either closes the circuit or opens it again. Every allowed call must be reported, a call that
+ * never answers as a failure once it times out, or a half-open circuit refuses calls for good.
+ */
+class CircuitBreaker {
+
+	enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private final int failureThreshold;
+	private final long openNanos;
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openedAt;
+	private boolean trialRunning;
+
+	CircuitBreaker(int failureThreshold, long openNanos) {
+		if (failureThreshold <= 0 || openNanos < 0) {
+			throw new IllegalArgumentException("Failure threshold must be positive and open time not negative");
+		}
+		this.failureThreshold = failureThreshold;
+		this.openNanos = openNanos;
+	}
+
+	/**
+	 * @return True if a call may be made now. A true result while half-open reserves the single trial call.
+	 */
+	synchronized boolean allowRequest() {
+		if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+			state = State.HALF_OPEN;
+			trialRunning = false;
+		}
+		if (state == State.HALF_OPEN) {
+			if (trialRunning) {
+				return false;
+			}
+			trialRunning = true;
+			return true;
+		}
+		return state == State.CLOSED;
+	}
+
+	synchronized void recordSuccess() {
+		consecutiveFailures = 0;
+		trialRunning = false;
+		state = State.CLOSED;
+	}
+
+	synchronized void recordFailure() {
+		consecutiveFailures++;
+		trialRunning = false;
+		if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+			state = State.OPEN;
+			openedAt = System.nanoTime();
+		}
+	}
+
+	synchronized State getState() {
+		return state;
+	}
+}
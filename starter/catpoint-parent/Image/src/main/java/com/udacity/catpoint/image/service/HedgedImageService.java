@@ -0,0 +1,283 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ImageService that answers within a fixed deadline by combining a primary service, such as
+ * {@link AwsImageService}, with a faster secondary one, such as a model running on the local CPU.
+ *
+ * Every scan goes to the primary first. If the primary has not answered after the hedge delay, the
+ * same scan is also sent to the secondary, and whichever answers first wins. The hedge delay is a
+ * percentile of the primary's recent latencies, so only its slowest calls are hedged. If the primary
+ * fails, the secondary is asked straight away. If neither has answered by the deadline the scan fails
+ * with a {@link TimeoutException} instead of waiting any longer.
+ *
+ * A circuit breaker counts primary calls that fail or miss the deadline. After too many in a row the
+ * primary is skipped and scans go only to the secondary until the breaker lets a trial call through.
+ */
+public class HedgedImageService implements ImageService, AutoCloseable {
+
+	private static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+	private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+	private static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+	private static final int LATENCY_SAMPLES = 256;
+	private static final int MIN_SAMPLES = 20; //fewer than this and the percentile means little
+
+	private final Logger log = LoggerFactory.getLogger(HedgedImageService.class);
+	private final ImageService primary;
+	private final ImageService secondary;
+	private final long deadlineNanos;
+	private final double hedgePercentile;
+	private final CircuitBreaker breaker;
+	private final LatencyWindow primaryLatency = new LatencyWindow(LATENCY_SAMPLES);
+	private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread t = new Thread(r, "catpoint-image-hedge");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final LongAdder hedged = new LongAdder();
+	private final LongAdder skippedPrimary = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+
+	/**
+	 * Uses the 95th percentile of primary latency as hedge delay, and opens the circuit for 30 seconds
+	 * after 5 primary failures in a row.
+	 * @param primary Preferred service
+	 * @param secondary Service used when the primary is slow, failing or skipped
+	 * @param deadline Longest time a scan may take
+	 */
+	public HedgedImageService(ImageService primary, ImageService secondary, Duration deadline) {
+		this(primary, secondary, deadline, DEFAULT_HEDGE_PERCENTILE, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+	}
+
+	/**
+	 * @param primary Preferred service
+	 * @param secondary Service used when the primary is slow, failing or skipped
+	 * @param deadline Longest time a scan may take
+	 * @param hedgePercentile Percentile (0 to 1) of primary latency after which the secondary is also asked
+	 * @param failureThreshold Primary failures in a row that open the circuit
+	 * @param openDuration How long the primary is skipped once the circuit opens
+	 */
+	public HedgedImageService(ImageService primary, ImageService secondary, Duration deadline,
+							  double hedgePercentile, int failureThreshold, Duration openDuration) {
+		if (deadline.isNegative() || deadline.isZero() || hedgePercentile < 0 || hedgePercentile > 1) {
+			throw new IllegalArgumentException("Deadline must be positive and hedge percentile between 0 and 1");
+		}
+		this.primary = primary;
+		this.secondary = secondary;
+		this.deadlineNanos = deadline.toNanos();
+		this.hedgePercentile = hedgePercentile;
+		this.breaker = new CircuitBreaker(failureThreshold, openDuration.toNanos());
+		timer.setRemoveOnCancelPolicy(true); //most deadline and hedge timers are cancelled, don't keep them queued
+	}
+
+	/**
+	 * @throws IllegalStateException If neither service answered within the deadline
+	 */
+	@Override
+	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+		try {
+			return imageContainsCatAsync(image, confidenceThreshhold).join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof TimeoutException) {
+				throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+		Scan scan = new Scan(image, confidenceThreshhold);
+		ScheduledFuture<?> deadline = timer.schedule(scan::deadlinePassed, deadlineNanos, TimeUnit.NANOSECONDS);
+		scan.result.whenComplete((r, t) -> deadline.cancel(false)); //the primary has its own timer, see startPrimary
+
+		if (!breaker.allowRequest()) {
+			skippedPrimary.increment();
+			scan.startSecondary();
+			return scan.result;
+		}
+		ScheduledFuture<?> hedge = timer.schedule(scan::hedge, hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+		scan.result.whenComplete((r, t) -> hedge.cancel(false));
+		scan.startPrimary();
+		return scan.result;
+	}
+
+	/**
+	 * The executor argument is ignored: both services are called through their own async methods.
+	 */
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold, Executor executor) {
+		return imageContainsCatAsync(image, confidenceThreshhold);
+	}
+
+	/**
+	 * @return Number of scans that were also sent to the secondary because the primary was slow or failed
+	 */
+	public long getHedgedCount() {
+		return hedged.sum();
+	}
+
+	/**
+	 * @return Number of scans sent only to the secondary because the circuit was open
+	 */
+	public long getSkippedPrimaryCount() {
+		return skippedPrimary.sum();
+	}
+
+	/**
+	 * @return Number of scans that failed because neither service answered within the deadline
+	 */
+	public long getTimeoutCount() {
+		return timedOut.sum();
+	}
+
+	/**
+	 * @return True while the primary is being skipped
+	 */
+	public boolean isPrimaryCircuitOpen() {
+		return breaker.getState() != CircuitBreaker.State.CLOSED;
+	}
+
+	@Override
+	public void close() {
+		timer.shutdownNow();
+	}
+
+	private long hedgeDelayNanos() {
+		if (primaryLatency.size() < MIN_SAMPLES) {
+			return deadlineNanos / 2;
+		}
+		return Math.min(primaryLatency.percentile(hedgePercentile), deadlineNanos);
+	}
+
+	/**
+	 * One scan. The result fails only once every service that was asked has failed.
+	 */
+	private class Scan {
+		private final BufferedImage image;
+		private final float confidenceThreshhold;
+		private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+		private final AtomicInteger calls = new AtomicInteger(1); //services asked so far
+		private final AtomicInteger failedCalls = new AtomicInteger();
+		private final AtomicBoolean primaryRecorded = new AtomicBoolean();
+		private long primaryStart;
+
+		Scan(BufferedImage image, float confidenceThreshhold) {
+			this.image = image;
+			this.confidenceThreshhold = confidenceThreshhold;
+		}
+
+		/**
+		 * Calls the primary on a deadline timer of its own, cancelled only when the primary itself answers.
+		 * A primary that hangs while the secondary wins is still counted as a failure, so the breaker
+		 * opens and a hung half-open trial does not block the primary forever.
+		 */
+		void startPrimary() {
+			primaryStart = System.nanoTime();
+			ScheduledFuture<?> primaryDeadline = timer.schedule(this::primaryDeadlinePassed, deadlineNanos, TimeUnit.NANOSECONDS);
+			call(primary).whenComplete((cat, t) -> {
+				primaryDeadline.cancel(false);
+				if (primaryRecorded.compareAndSet(false, true)) {
+					if (t == null) {
+						primaryLatency.record(System.nanoTime() - primaryStart);
+						breaker.recordSuccess();
+					} else {
+						breaker.recordFailure();
+					}
+				}
+				if (t == null) {
+					result.complete(cat);
+				} else {
+					log.warn("Primary image service failed", t);
+					if (!startSecondaryAfterPrimary()) {
+						callFailed(t);
+					}
+				}
+			});
+		}
+
+		/**
+		 * Sends the scan to the secondary when the circuit is open; the secondary is then the only call.
+		 */
+		void startSecondary() {
+			primaryRecorded.set(true); //the primary was never called, so there is nothing to record
+			callSecondary();
+		}
+
+		void hedge() {
+			if (!result.isDone() && calls.compareAndSet(1, 2)) {
+				hedged.increment();
+				callSecondary();
+			}
+		}
+
+		/**
+		 * @return True if the secondary was started because of this primary failure
+		 */
+		private boolean startSecondaryAfterPrimary() {
+			if (calls.compareAndSet(1, 2)) {
+				hedged.increment();
+				failedCalls.incrementAndGet(); //the primary's failure, counted before the secondary can fail
+				callSecondary();
+				return true;
+			}
+			return false;
+		}
+
+		private void callSecondary() {
+			call(secondary).whenComplete((cat, t) -> {
+				if (t == null) {
+					result.complete(cat);
+				} else {
+					callFailed(t);
+				}
+			});
+		}
+
+		private void callFailed(Throwable t) {
+			if (failedCalls.incrementAndGet() >= calls.get()) {
+				result.completeExceptionally(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+			}
+		}
+
+		private CompletableFuture<Boolean> call(ImageService service) {
+			try {
+				return service.imageContainsCatAsync(image, confidenceThreshhold);
+			} catch (RuntimeException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+
+		void primaryDeadlinePassed() {
+			if (primaryRecorded.compareAndSet(false, true)) {
+				breaker.recordFailure(); //too slow counts against the primary even if it answers later
+			}
+		}
+
+		void deadlinePassed() {
+			if (result.completeExceptionally(new TimeoutException(
+					"No image verdict within " + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + " ms"))) {
+				timedOut.increment();
+			}
+		}
+	}
+}
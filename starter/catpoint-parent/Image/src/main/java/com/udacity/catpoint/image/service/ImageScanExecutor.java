@@ -0,0 +1,24 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared pool used by {@link ImageService#imageContainsCatAsync(java.awt.image.BufferedImage, float)}.
+ * Scans mostly wait on the network, so threads are created on demand and reclaimed when idle.
+ * Threads are daemons so a pending scan never keeps the application alive.
+ */
+final class ImageScanExecutor {
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	static final ExecutorService INSTANCE = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "catpoint-image-scan-" + THREAD_COUNT.incrementAndGet());
+		t.setDaemon(true);
+		return t;
+	});
+
+	private ImageScanExecutor() {
+	}
+}
@@ -1,7 +1,24 @@
-package com.udacity.catpoint.image.service;
-
-import java.awt.image.BufferedImage;
-
-public interface ImageService {
-	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
-}
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public interface ImageService {
+	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
+
+	/**
+	 * Non-blocking variant of {@link #imageContainsCat(BufferedImage, float)}. By default the
+	 * blocking call is run on a shared pool of daemon threads reserved for image scans.
+	 */
+	public default CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+		return imageContainsCatAsync(image, confidenceThreshhold, ImageScanExecutor.INSTANCE);
+	}
+
+	/**
+	 * Non-blocking variant of {@link #imageContainsCat(BufferedImage, float)} that runs on the given executor.
+	 */
+	public default CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold, Executor executor) {
+		return CompletableFuture.supplyAsync(() -> imageContainsCat(image, confidenceThreshhold), executor);
+	}
+}
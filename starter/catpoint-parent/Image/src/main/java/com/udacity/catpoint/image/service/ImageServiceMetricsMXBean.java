@@ -0,0 +1,20 @@
+package com.udacity.catpoint.image.service;
+
+/**
+ * Image service metrics published over JMX by {@link MeteredImageService}.
+ */
+public interface ImageServiceMetricsMXBean {
+
+	LatencySnapshot getClassificationLatency();
+
+	long getScanCount();
+
+	long getCatCount();
+
+	long getFailureCount();
+
+	/**
+	 * @return Fraction of successful scans that found a cat, or 0 if there have been none
+	 */
+	double getCatDetectionRate();
+}
@@ -0,0 +1,131 @@
+package com.udacity.catpoint.image.service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prepares camera frames for upload to an image recognition service. Frames larger than
+ * {@code maxEdge} on their longest side are scaled down first, then JPEG encoded at a fixed quality.
+ *
+ * Each thread keeps its own JPEG writer, output buffer and scaling canvas, so after warm-up an
+ * encode allocates little beyond the returned byte array. Totals for encoded frames, bytes and encode time
+ * are kept so the cost per scan can be measured.
+ */
+public class JpegImageEncoder {
+
+	private final int maxEdge;
+	private final float quality;
+	private final ThreadLocal<EncoderState> state = ThreadLocal.withInitial(EncoderState::new);
+
+	private final LongAdder encodedImages = new LongAdder();
+	private final LongAdder encodedBytes = new LongAdder();
+	private final LongAdder encodeNanos = new LongAdder();
+
+	/**
+	 * @param maxEdge Longest side, in pixels, of the encoded image
+	 * @param quality JPEG quality between 0 and 1
+	 */
+	public JpegImageEncoder(int maxEdge, float quality) {
+		if (maxEdge <= 0 || quality < 0 || quality > 1) {
+			throw new IllegalArgumentException("Max edge must be positive and quality between 0 and 1");
+		}
+		this.maxEdge = maxEdge;
+		this.quality = quality;
+	}
+
+	/**
+	 * Scales and encodes the image.
+	 * @param image Image to encode
+	 * @return The JPEG bytes
+	 * @throws IOException If the image cannot be encoded
+	 */
+	public byte[] encode(BufferedImage image) throws IOException {
+		long start = System.nanoTime();
+		EncoderState s = state.get();
+		BufferedImage prepared = s.prepare(image, maxEdge);
+
+		s.buffer.reset();
+		try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(s.buffer)) {
+			s.writer.setOutput(out);
+			s.writer.write(null, new IIOImage(prepared, null, null), s.param(quality));
+		} finally {
+			s.writer.setOutput(null);
+		}
+		byte[] bytes = s.buffer.toByteArray();
+
+		encodedImages.increment();
+		encodedBytes.add(bytes.length);
+		encodeNanos.add(System.nanoTime() - start);
+		return bytes;
+	}
+
+	public long getEncodedImages() {
+		return encodedImages.sum();
+	}
+
+	public long getEncodedBytes() {
+		return encodedBytes.sum();
+	}
+
+	public long getEncodeNanos() {
+		return encodeNanos.sum();
+	}
+
+	/**
+	 * Per-thread writer and scratch space.
+	 */
+	private static class EncoderState {
+		private final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024); //reset() keeps its capacity
+		private ImageWriteParam param;
+		private BufferedImage canvas;
+
+		ImageWriteParam param(float quality) {
+			if (param == null) {
+				param = writer.getDefaultWriteParam();
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(quality);
+			}
+			return param;
+		}
+
+		/**
+		 * Returns an RGB image no larger than maxEdge. The JPEG writer cannot handle alpha, so
+		 * images with another pixel layout are redrawn even when they are already small enough.
+		 */
+		BufferedImage prepare(BufferedImage image, int maxEdge) {
+			int width = image.getWidth();
+			int height = image.getHeight();
+			int longest = Math.max(width, height);
+			if (longest <= maxEdge && (image.getType() == BufferedImage.TYPE_INT_RGB
+					|| image.getType() == BufferedImage.TYPE_3BYTE_BGR)) {
+				return image;
+			}
+			if (longest > maxEdge) {
+				width = Math.max(1, Math.round((float) width * maxEdge / longest));
+				height = Math.max(1, Math.round((float) height * maxEdge / longest));
+			}
+			if (canvas == null || canvas.getWidth() != width || canvas.getHeight() != height) {
+				canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			}
+			Graphics2D g = canvas.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g.clearRect(0, 0, width, height); //canvas is reused, don't let old pixels show through alpha
+				g.drawImage(image, 0, 0, width, height, null);
+			} finally {
+				g.dispose();
+			}
+			return canvas;
+		}
+	}
+}
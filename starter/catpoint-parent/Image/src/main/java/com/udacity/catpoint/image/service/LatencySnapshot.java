@@ -0,0 +1,54 @@
+package com.udacity.catpoint.image.service;
+
+/**
+ * Summary of a {@link LatencyHistogram} at one moment, in microseconds. Shown as a composite value
+ * when read through JMX.
+ */
+public class LatencySnapshot {
+
+	private final long count;
+	private final double meanMicros;
+	private final double p50Micros;
+	private final double p90Micros;
+	private final double p99Micros;
+	private final double maxMicros;
+
+	public LatencySnapshot(long count, double meanMicros, double p50Micros, double p90Micros, double p99Micros, double maxMicros) {
+		this.count = count;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p90Micros = p90Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMeanMicros() {
+		return meanMicros;
+	}
+
+	public double getP50Micros() {
+		return p50Micros;
+	}
+
+	public double getP90Micros() {
+		return p90Micros;
+	}
+
+	public double getP99Micros() {
+		return p99Micros;
+	}
+
+	public double getMaxMicros() {
+		return maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+				count, meanMicros, p50Micros, p90Micros, p99Micros, maxMicros);
+	}
+}
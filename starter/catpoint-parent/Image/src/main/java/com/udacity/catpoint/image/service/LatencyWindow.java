@@ -0,0 +1,44 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples and answers percentile queries over them.
+ */
+class LatencyWindow {
+
+	private final long[] samples;
+	private int next;
+	private int count;
+
+	LatencyWindow(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+		this.samples = new long[capacity];
+	}
+
+	synchronized void record(long nanos) {
+		samples[next] = nanos;
+		next = (next + 1) % samples.length;
+		count = Math.min(count + 1, samples.length);
+	}
+
+	synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * @param percentile Between 0 and 1
+	 * @return The latency below which that fraction of the recent samples fall, or -1 if there are none
+	 */
+	synchronized long percentile(double percentile) {
+		if (count == 0) {
+			return -1;
+		}
+		long[] sorted = Arrays.copyOf(samples, count);
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, index))];
+	}
+}
@@ -0,0 +1,71 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * ImageService that creates the real service the first time an image is scanned. Until then none of
+ * the real service's classes are loaded, so an application that may never see an image, or only sees
+ * one well after startup, does not pay for the AWS SDK or the imaging code up front.
+ */
+public class LazyImageService implements ImageService, AutoCloseable {
+
+	private final Supplier<? extends ImageService> factory;
+	private volatile ImageService delegate;
+
+	/**
+	 * @param factory Creates the real service. Called at most once.
+	 */
+	public LazyImageService(Supplier<? extends ImageService> factory) {
+		this.factory = factory;
+	}
+
+	@Override
+	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+		return delegate().imageContainsCat(image, confidenceThreshhold);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+		return delegate().imageContainsCatAsync(image, confidenceThreshhold);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold, Executor executor) {
+		return delegate().imageContainsCatAsync(image, confidenceThreshhold, executor);
+	}
+
+	/**
+	 * @return True once the real service has been created
+	 */
+	public boolean isInitialized() {
+		return delegate != null;
+	}
+
+	/**
+	 * Closes the real service if it was created and is closeable.
+	 */
+	@Override
+	public void close() throws Exception {
+		ImageService current = delegate;
+		if (current instanceof AutoCloseable) {
+			((AutoCloseable) current).close();
+		}
+	}
+
+	private ImageService delegate() {
+		ImageService current = delegate;
+		if (current == null) {
+			synchronized (this) {
+				current = delegate;
+				if (current == null) {
+					current = factory.get();
+					delegate = current;
+				}
+			}
+		}
+		return current;
+	}
+}
@@ -0,0 +1,231 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Image Recognition Service that runs entirely on the local CPU, with no network calls.
+ *
+ * The image is shrunk to a small RGB thumbnail. A fixed set of features is measured on it: the edge
+ * orientation histogram, the amount of fine texture such as fur, the hue histogram and the brightness.
+ * A logistic regression model combines the features into a cat confidence from 0 to 100, the same scale
+ * Rekognition uses, and the confidence is compared against the threshold.
+ *
+ * The model weights are loaded from the {@code cat-model.properties} resource next to this class. Another
+ * model can be supplied with {@link #LocalImageService(Properties)}. The model is read-only after loading
+ * and each thread has its own scratch buffers, so one instance can be shared by any number of threads.
+ *
+ * Experimental: the bundled weights were fitted on sample-cat.jpg and sample-not-cat.jpg (crops, flips
+ * and brightness changes of them) plus synthetic empty-room frames, and have not been measured on any
+ * image outside that set. Until a model fitted on real camera frames replaces them, the applications
+ * do not offer this service, and it should not be used to decide whether to sound the alarm.
+ */
+public class LocalImageService implements ImageService {
+
+	static final int FEATURE_COUNT = 22;
+	private static final int ORIENTATION_BINS = 8;
+	private static final int HUE_BINS = 8;
+	private static final int FINE_EDGE = 8;    //gradient range treated as fine texture such as fur
+	private static final int STRONG_EDGE = 40; //gradient above this is an object outline
+
+	private final int size;
+	private final float[] mean;
+	private final float[] scale;
+	private final float[] weights;
+	private final float bias;
+	private final ThreadLocal<Scratch> scratch;
+
+	/**
+	 * Loads the bundled model.
+	 */
+	public LocalImageService() {
+		this(loadModel());
+	}
+
+	/**
+	 * @param model Model with the keys size, mean, scale, weights and bias. The arrays are comma separated
+	 *              and have one value per feature.
+	 */
+	public LocalImageService(Properties model) {
+		this.size = Integer.parseInt(model.getProperty("size"));
+		this.mean = parseFeatureArray(model, "mean");
+		this.scale = parseFeatureArray(model, "scale");
+		this.weights = parseFeatureArray(model, "weights");
+		this.bias = Float.parseFloat(model.getProperty("bias"));
+		if (size < 8) {
+			throw new IllegalArgumentException("Model thumbnail size must be at least 8");
+		}
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(size));
+	}
+
+	@Override
+	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+		return catConfidence(image) >= confidenceThreshhold;
+	}
+
+	/**
+	 * @return How sure the model is that the image shows a cat, from 0 to 100
+	 */
+	public float catConfidence(BufferedImage image) {
+		Scratch s = scratch.get();
+		extractFeatures(image, s);
+		float z = bias;
+		for (int i = 0; i < FEATURE_COUNT; i++) {
+			z += weights[i] * (s.features[i] - mean[i]) * scale[i];
+		}
+		return (float) (100 / (1 + Math.exp(-z)));
+	}
+
+	/**
+	 * Measures the raw, unnormalized features of the image. Package-private so models can be fitted against
+	 * exactly the same measurements.
+	 */
+	static float[] features(BufferedImage image, int size) {
+		Scratch s = new Scratch(size);
+		extractFeatures(image, s);
+		return s.features.clone();
+	}
+
+	private static void extractFeatures(BufferedImage image, Scratch s) {
+		int size = s.size;
+		Graphics2D g = s.canvas.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.clearRect(0, 0, size, size); //canvas is reused, don't let old pixels show through alpha
+			g.drawImage(image, 0, 0, size, size, null);
+		} finally {
+			g.dispose();
+		}
+		int[] rgb = s.canvas.getRGB(0, 0, size, size, s.rgb, 0, size);
+		int[] gray = s.gray;
+		float[] f = s.features;
+		Arrays.fill(f, 0);
+
+		long brightness = 0;
+		long brightnessSquares = 0;
+		int greyPixels = 0;
+		for (int i = 0; i < rgb.length; i++) {
+			int r = (rgb[i] >> 16) & 0xff;
+			int gr = (rgb[i] >> 8) & 0xff;
+			int b = rgb[i] & 0xff;
+			int y = (r * 77 + gr * 150 + b * 29) >> 8;
+			gray[i] = y;
+			brightness += y;
+			brightnessSquares += y * y;
+
+			int max = Math.max(r, Math.max(gr, b));
+			int min = Math.min(r, Math.min(gr, b));
+			int chroma = max - min;
+			if (max < 40 || chroma * 5 < max) { //dark or less than 20% saturated
+				greyPixels++;
+				continue;
+			}
+			int hue; //0 to 6 * chroma
+			if (max == r) {
+				hue = gr >= b ? gr - b : 6 * chroma - (b - gr);
+			} else if (max == gr) {
+				hue = 2 * chroma + b - r;
+			} else {
+				hue = 4 * chroma + r - gr;
+			}
+			f[ORIENTATION_BINS + Math.min(HUE_BINS - 1, hue * HUE_BINS / (6 * chroma))]++;
+		}
+
+		float totalMagnitude = 0;
+		int fineEdges = 0;
+		int strongEdges = 0;
+		for (int y = 1; y < size - 1; y++) {
+			int row = y * size;
+			for (int x = 1; x < size - 1; x++) {
+				int i = row + x;
+				int gx = gray[i + 1] - gray[i - 1];
+				int gy = gray[i + size] - gray[i - size];
+				float magnitude = (float) Math.sqrt(gx * gx + gy * gy);
+				if (magnitude < 1) {
+					continue;
+				}
+				double angle = Math.atan2(gy, gx);
+				if (angle < 0) {
+					angle += Math.PI; //edge direction, not gradient direction
+				}
+				f[Math.min(ORIENTATION_BINS - 1, (int) (angle * ORIENTATION_BINS / Math.PI))] += magnitude;
+				totalMagnitude += magnitude;
+				if (magnitude > STRONG_EDGE) {
+					strongEdges++;
+				} else if (magnitude >= FINE_EDGE) {
+					fineEdges++;
+				}
+			}
+		}
+
+		int pixels = rgb.length;
+		int inner = (size - 2) * (size - 2);
+		for (int i = 0; i < ORIENTATION_BINS; i++) {
+			f[i] = totalMagnitude == 0 ? 0 : f[i] / totalMagnitude;
+		}
+		for (int i = ORIENTATION_BINS; i < ORIENTATION_BINS + HUE_BINS; i++) {
+			f[i] /= pixels;
+		}
+		int next = ORIENTATION_BINS + HUE_BINS;
+		float meanBrightness = (float) brightness / pixels;
+		f[next++] = (float) greyPixels / pixels;
+		f[next++] = totalMagnitude / inner / 255;
+		f[next++] = (float) fineEdges / inner;
+		f[next++] = (float) strongEdges / inner;
+		f[next++] = meanBrightness / 255;
+		f[next] = (float) Math.sqrt(Math.max(0, (float) brightnessSquares / pixels - meanBrightness * meanBrightness)) / 255;
+	}
+
+	private static float[] parseFeatureArray(Properties model, String key) {
+		String value = model.getProperty(key);
+		if (value == null) {
+			throw new IllegalArgumentException("Model is missing " + key);
+		}
+		String[] parts = value.split(",");
+		if (parts.length != FEATURE_COUNT) {
+			throw new IllegalArgumentException("Model " + key + " has " + parts.length + " values, expected " + FEATURE_COUNT);
+		}
+		float[] values = new float[FEATURE_COUNT];
+		for (int i = 0; i < FEATURE_COUNT; i++) {
+			values[i] = Float.parseFloat(parts[i].trim());
+		}
+		return values;
+	}
+
+	private static Properties loadModel() {
+		Properties props = new Properties();
+		try (InputStream is = LocalImageService.class.getResourceAsStream("cat-model.properties")) {
+			if (is == null) {
+				throw new IOException("cat-model.properties not found next to LocalImageService");
+			}
+			props.load(is);
+		} catch (IOException ioe) {
+			throw new UncheckedIOException("Unable to load the local cat model", ioe);
+		}
+		return props;
+	}
+
+	/**
+	 * Per-thread thumbnail and buffers, reused for every image.
+	 */
+	private static class Scratch {
+		private final int size;
+		private final BufferedImage canvas;
+		private final int[] rgb;
+		private final int[] gray;
+		private final float[] features = new float[FEATURE_COUNT];
+
+		Scratch(int size) {
+			this.size = size;
+			this.canvas = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+			this.rgb = new int[size * size];
+			this.gray = new int[size * size];
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.udacity.catpoint.image.service;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ImageService decorator that measures every scan: how long it took, whether it found a cat and whether
+ * it failed. The numbers can be read directly or published as a platform MBean with {@link #register(String)}.
+ * Wraps any implementation, so every service gets the same metrics without changing it.
+ */
+public class MeteredImageService implements ImageService, ImageServiceMetricsMXBean {
+
+	private final ImageService delegate;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder cats = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+
+	public MeteredImageService(ImageService delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+		long start = System.nanoTime();
+		boolean cat;
+		try {
+			cat = delegate.imageContainsCat(image, confidenceThreshhold);
+		} catch (RuntimeException e) {
+			failures.increment();
+			throw e;
+		}
+		record(start, cat);
+		return cat;
+	}
+
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+		long start = System.nanoTime();
+		return measure(start, delegate.imageContainsCatAsync(image, confidenceThreshhold));
+	}
+
+	@Override
+	public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold, Executor executor) {
+		long start = System.nanoTime();
+		return measure(start, delegate.imageContainsCatAsync(image, confidenceThreshhold, executor));
+	}
+
+	/**
+	 * Publishes these metrics as {@code com.udacity.catpoint:type=ImageService,name=<name>}.
+	 * @return The name the MBean was registered under
+	 */
+	public ObjectName register(String name) {
+		try {
+			ObjectName objectName = new ObjectName("com.udacity.catpoint:type=ImageService,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register image service metrics", e);
+		}
+	}
+
+	@Override
+	public LatencySnapshot getClassificationLatency() {
+		return latency.snapshot();
+	}
+
+	@Override
+	public long getScanCount() {
+		return latency.getCount();
+	}
+
+	@Override
+	public long getCatCount() {
+		return cats.sum();
+	}
+
+	@Override
+	public long getFailureCount() {
+		return failures.sum();
+	}
+
+	@Override
+	public double getCatDetectionRate() {
+		long scans = latency.getCount();
+		return scans == 0 ? 0 : (double) cats.sum() / scans;
+	}
+
+	private CompletableFuture<Boolean> measure(long start, CompletableFuture<Boolean> scan) {
+		return scan.whenComplete((cat, t) -> {
+			if (t == null) {
+				record(start, cat);
+			} else {
+				failures.increment();
+			}
+		});
+	}
+
+	private void record(long start, boolean cat) {
+		latency.recordSince(start);
+		if (cat) {
+			cats.increment();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.udacity.catpoint.image.service;
+
+/**
+ * Simple token bucket rate limiter. Tokens refill continuously at {@code permitsPerSecond} up to
+ * {@code burst}; each request takes one token.
+ */
+class TokenBucket {
+
+	private final double permitsPerNano;
+	private final double burst;
+	private double tokens;
+	private long lastRefill;
+
+	TokenBucket(double permitsPerSecond, int burst) {
+		if (permitsPerSecond <= 0 || burst <= 0) {
+			throw new IllegalArgumentException("Rate and burst must be positive");
+		}
+		this.permitsPerNano = permitsPerSecond / 1_000_000_000d;
+		this.burst = burst;
+		this.tokens = burst;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Takes a token if one is available.
+	 * @return True if a token was taken
+	 */
+	synchronized boolean tryAcquire() {
+		refill();
+		if (tokens >= 1) {
+			tokens--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return Nanoseconds until the next token becomes available, 0 if one is available now
+	 */
+	synchronized long nanosUntilNextToken() {
+		refill();
+		return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+		lastRefill = now;
+	}
+}
@@ -0,0 +1,302 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncAwsImageServiceTest {
+
+	private final FakeRekognition rekognition = new FakeRekognition();
+	private AsyncAwsImageService imageService;
+
+	@AfterEach
+	public void close() {
+		if (imageService != null) {
+			imageService.close();
+		}
+	}
+
+	@Test
+	public void imageContainsCat_catLabelFromEndpoint_true() throws IOException {
+		try (RekognitionStandIn standIn = new RekognitionStandIn("{\"Labels\":[{\"Name\":\"Cat\",\"Confidence\":97.5}]}")) {
+			imageService = new AsyncAwsImageService(properties(standIn));
+
+			assertTrue(imageService.imageContainsCat(image(0x808080), 50f));
+			assertEquals(List.of("RekognitionService.DetectLabels"), standIn.targets);
+		}
+	}
+
+	@Test
+	public void imageContainsCat_noCatLabelFromEndpoint_false() throws IOException {
+		try (RekognitionStandIn standIn = new RekognitionStandIn("{\"Labels\":[{\"Name\":\"Sofa\",\"Confidence\":91.0}]}")) {
+			imageService = new AsyncAwsImageService(properties(standIn));
+
+			assertFalse(imageService.imageContainsCat(image(0x808080), 50f));
+		}
+	}
+
+	@Test
+	public void imageContainsCatAsync_identicalOverlappingScans_shareOneRequest() {
+		imageService = new AsyncAwsImageService(rekognition, 8, 100, 10, new JpegImageEncoder(64, 0.8f));
+
+		CompletableFuture<Boolean> first = imageService.imageContainsCatAsync(image(0xFF0000), 50f);
+		CompletableFuture<Boolean> second = imageService.imageContainsCatAsync(image(0xFF0000), 50f);
+		assertEquals(1, rekognition.calls.size());
+
+		first.cancel(false);
+		rekognition.answer(0, true);
+
+		assertTrue(second.join());
+	}
+
+	@Test
+	public void imageContainsCatAsync_identicalScanAfterCompletion_sentAgain() {
+		imageService = new AsyncAwsImageService(rekognition, 8, 100, 10, new JpegImageEncoder(64, 0.8f));
+
+		CompletableFuture<Boolean> first = imageService.imageContainsCatAsync(image(0xFF0000), 50f);
+		rekognition.answer(0, true);
+		first.join();
+		imageService.imageContainsCatAsync(image(0xFF0000), 50f);
+
+		assertEquals(2, rekognition.calls.size());
+	}
+
+	@Test
+	public void imageContainsCatAsync_inFlightLimitReached_queuedUntilSlotFree() {
+		imageService = new AsyncAwsImageService(rekognition, 1, 100, 10, new JpegImageEncoder(64, 0.8f));
+
+		imageService.imageContainsCatAsync(image(0xFF0000), 50f);
+		CompletableFuture<Boolean> queued = imageService.imageContainsCatAsync(image(0x00FF00), 50f);
+		assertEquals(1, rekognition.calls.size());
+		assertEquals(1, imageService.getQueuedRequests());
+
+		rekognition.answer(0, false);
+		assertEquals(2, rekognition.calls.size());
+		assertEquals(0, imageService.getQueuedRequests());
+
+		rekognition.answer(1, true);
+		assertTrue(queued.join());
+	}
+
+	/**
+	 * With a burst of one, each scan waits for the next token and the scans go out in the order they arrived.
+	 */
+	@Test
+	public void imageContainsCatAsync_rateLimited_sentInOrderAsTokensArrive() throws InterruptedException {
+		imageService = new AsyncAwsImageService(rekognition, 8, 20, 1, new JpegImageEncoder(64, 0.8f));
+
+		imageService.imageContainsCatAsync(image(0xFF0000), 50f);
+		CompletableFuture<Boolean> second = imageService.imageContainsCatAsync(image(0x00FF00), 50f);
+		CompletableFuture<Boolean> third = imageService.imageContainsCatAsync(image(0x0000FF), 50f);
+		assertEquals(1, rekognition.calls.size());
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (rekognition.calls.size() < 3) {
+			assertTrue(System.nanoTime() < deadline, "rate limited scans were not sent");
+			Thread.sleep(10);
+		}
+		rekognition.answer(1, true);
+		rekognition.answer(2, false);
+
+		assertTrue(second.join());
+		assertFalse(third.join());
+	}
+
+	@Test
+	public void close_unfinishedScansFailedAndNewScansRejected() {
+		imageService = new AsyncAwsImageService(rekognition, 1, 100, 10, new JpegImageEncoder(64, 0.8f));
+		CompletableFuture<Boolean> running = imageService.imageContainsCatAsync(image(0xFF0000), 50f);
+		CompletableFuture<Boolean> queued = imageService.imageContainsCatAsync(image(0x00FF00), 50f);
+
+		imageService.close();
+
+		assertTrue(rekognition.closed);
+		assertTrue(running.isCompletedExceptionally());
+		assertTrue(queued.isCompletedExceptionally());
+		assertDoesNotThrow(() -> rekognition.answer(0, true));
+		assertThrows(IllegalStateException.class, () -> imageService.imageContainsCat(image(0x0000FF), 50f));
+		assertEquals(1, rekognition.calls.size());
+	}
+
+	private static BufferedImage image(int rgb) {
+		BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 16; y++) {
+			for (int x = 0; x < 16; x++) {
+				image.setRGB(x, y, rgb);
+			}
+		}
+		return image;
+	}
+
+	private static Properties properties(RekognitionStandIn standIn) {
+		Properties props = new Properties();
+		props.setProperty("aws.id", "test");
+		props.setProperty("aws.secret", "test");
+		props.setProperty("aws.region", "us-east-1");
+		props.setProperty("aws.endpoint", standIn.endpoint());
+		return props;
+	}
+
+	/**
+	 * Client whose calls complete only when the test answers them.
+	 */
+	private static final class FakeRekognition implements RekognitionAsyncClient {
+		final List<CompletableFuture<DetectLabelsResponse>> calls = new CopyOnWriteArrayList<>();
+		volatile boolean closed;
+
+		@Override
+		public CompletableFuture<DetectLabelsResponse> detectLabels(DetectLabelsRequest request) {
+			CompletableFuture<DetectLabelsResponse> call = new CompletableFuture<>();
+			calls.add(call);
+			return call;
+		}
+
+		void answer(int call, boolean cat) {
+			Label label = Label.builder().name(cat ? "Cat" : "Sofa").confidence(90f).build();
+			calls.get(call).complete(DetectLabelsResponse.builder().labels(label).build());
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	/**
+	 * Local HTTP/1.1 stand-in for the Rekognition endpoint that gives every request the same
+	 * DetectLabels response and records each request's X-Amz-Target header.
+	 */
+	private static final class RekognitionStandIn implements AutoCloseable {
+		final List<String> targets = new CopyOnWriteArrayList<>();
+		private final ServerSocket server;
+		private final byte[] response;
+
+		RekognitionStandIn(String labelsJson) throws IOException {
+			this.response = labelsJson.getBytes(StandardCharsets.UTF_8);
+			this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			Thread acceptor = new Thread(this::accept, "rekognition-stand-in");
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		String endpoint() {
+			return "http://" + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort();
+		}
+
+		@Override
+		public void close() throws IOException {
+			server.close();
+		}
+
+		private void accept() {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					Thread connection = new Thread(() -> serve(socket), "rekognition-stand-in-connection");
+					connection.setDaemon(true);
+					connection.start();
+				} catch (IOException e) {
+					return; //closed
+				}
+			}
+		}
+
+		/**
+		 * Answers requests on one connection until the client closes it.
+		 */
+		private void serve(Socket socket) {
+			try (socket; InputStream in = new BufferedInputStream(socket.getInputStream());
+				 OutputStream out = socket.getOutputStream()) {
+				for (Map<String, String> headers = readHeaders(in); headers != null; headers = readHeaders(in)) {
+					readBody(in, headers);
+					targets.add(headers.get("x-amz-target"));
+					out.write(("HTTP/1.1 200 OK\r\n"
+							+ "Content-Type: application/x-amz-json-1.1\r\n"
+							+ "x-amzn-RequestId: stand-in\r\n"
+							+ "Content-Length: " + response.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+					out.write(response);
+					out.flush();
+				}
+			} catch (IOException e) {
+				//client went away
+			}
+		}
+
+		/**
+		 * @return The request headers with lower-case names, or null if the connection was closed
+		 */
+		private static Map<String, String> readHeaders(InputStream in) throws IOException {
+			String requestLine = readLine(in);
+			if (requestLine == null) {
+				return null;
+			}
+			Map<String, String> headers = new HashMap<>();
+			for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+				int colon = line.indexOf(':');
+				headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+			}
+			return headers;
+		}
+
+		private static void readBody(InputStream in, Map<String, String> headers) throws IOException {
+			if (headers.containsKey("content-length")) {
+				in.readNBytes(Integer.parseInt(headers.get("content-length")));
+			} else if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+				for (int size = Integer.parseInt(readLine(in).split(";")[0].trim(), 16); size > 0;
+					 size = Integer.parseInt(readLine(in).split(";")[0].trim(), 16)) {
+					in.readNBytes(size);
+					readLine(in);
+				}
+				for (String trailer = readLine(in); trailer != null && !trailer.isEmpty(); trailer = readLine(in)) {
+					//skip trailers
+				}
+			}
+		}
+
+		private static String readLine(InputStream in) throws IOException {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			for (int b = in.read(); b != '\n'; b = in.read()) {
+				if (b < 0) {
+					return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+				}
+				if (b != '\r') {
+					line.write(b);
+				}
+			}
+			return line.toString(StandardCharsets.US_ASCII);
+		}
+	}
+}
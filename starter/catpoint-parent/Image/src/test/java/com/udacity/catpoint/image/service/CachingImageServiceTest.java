@@ -0,0 +1,131 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachingImageServiceTest {
+
+	private final AtomicInteger scans = new AtomicInteger();
+	private final ImageService delegate = (image, confidenceThreshhold) -> {
+		scans.incrementAndGet();
+		return image.getRGB(0, 0) != 0;
+	};
+
+	@Test
+	public void imageContainsCat_sameFrameTwice_secondAnsweredFromCache() {
+		CachingImageService cache = new CachingImageService(delegate, 10, Duration.ofMinutes(1), 0);
+		BufferedImage frame = frame(0);
+
+		assertTrue(cache.imageContainsCat(frame, 50f));
+		assertTrue(cache.imageContainsCat(frame(0), 50f));
+
+		assertEquals(1, scans.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate());
+	}
+
+	@Test
+	public void imageContainsCat_differentFrames_bothClassified() {
+		CachingImageService cache = new CachingImageService(delegate, 10, Duration.ofMinutes(1), 8);
+
+		cache.imageContainsCat(frame(0), 50f);
+		cache.imageContainsCat(frame(0xFF), 50f);
+
+		assertEquals(2, scans.get());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void imageContainsCat_differentThreshold_classifiedAgain() {
+		CachingImageService cache = new CachingImageService(delegate, 10, Duration.ofMinutes(1), 0);
+
+		cache.imageContainsCat(frame(0), 50f);
+		cache.imageContainsCat(frame(0), 90f);
+
+		assertEquals(2, scans.get());
+	}
+
+	/**
+	 * Frames that differ in one of the eight hashed rows differ in eight hash bits.
+	 */
+	@Test
+	public void imageContainsCat_nearFrameWithinDistance_answeredFromCache() {
+		CachingImageService cache = new CachingImageService(delegate, 10, Duration.ofMinutes(1), 8);
+
+		cache.imageContainsCat(frame(0), 50f);
+		cache.imageContainsCat(frame(0b1), 50f);
+
+		assertEquals(1, scans.get());
+	}
+
+	@Test
+	public void imageContainsCat_nearFrameBeyondDistance_classifiedAgain() {
+		CachingImageService cache = new CachingImageService(delegate, 10, Duration.ofMinutes(1), 7);
+
+		cache.imageContainsCat(frame(0), 50f);
+		cache.imageContainsCat(frame(0b1), 50f);
+
+		assertEquals(2, scans.get());
+	}
+
+	@Test
+	public void imageContainsCat_overCapacity_evictsLeastRecentlyUsed() {
+		CachingImageService cache = new CachingImageService(delegate, 2, Duration.ofMinutes(1), 0);
+
+		cache.imageContainsCat(frame(0), 50f);
+		cache.imageContainsCat(frame(0xF0), 50f);
+		cache.imageContainsCat(frame(0), 50f); //hit, now most recent
+		cache.imageContainsCat(frame(0xFF), 50f); //evicts 0xF0
+		assertEquals(3, scans.get());
+
+		cache.imageContainsCat(frame(0), 50f);
+		assertEquals(3, scans.get());
+		cache.imageContainsCat(frame(0xF0), 50f);
+		assertEquals(4, scans.get());
+	}
+
+	@Test
+	public void imageContainsCat_afterTtl_classifiedAgain() throws InterruptedException {
+		CachingImageService cache = new CachingImageService(delegate, 10, Duration.ofMillis(1), 8);
+
+		cache.imageContainsCat(frame(0), 50f);
+		Thread.sleep(20);
+		cache.imageContainsCat(frame(0), 50f);
+
+		assertEquals(2, scans.get());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void differenceHash_rowDirections_setOneBytePerRow() {
+		assertEquals(0xFFFFFFFFFFFFFFFFL, CachingImageService.differenceHash(frame(0)));
+		assertEquals(0xFFFFFFFFFFFFFF00L, CachingImageService.differenceHash(frame(0b1)));
+		assertEquals(0L, CachingImageService.differenceHash(frame(0xFF)));
+		assertFalse(CachingImageService.differenceHash(frame(0xF0)) == CachingImageService.differenceHash(frame(0x0F)));
+	}
+
+	/**
+	 * Builds a 90x80 frame of eight horizontal bands, one per hashed row. Each band is a grey
+	 * gradient that darkens to the right, or brightens to the right if its bit in {@code reversed}
+	 * is set (bit 0 is the bottom band). The top left pixel is black only if the top band is reversed.
+	 */
+	private static BufferedImage frame(int reversed) {
+		BufferedImage image = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 80; y++) {
+			boolean brighterRight = (reversed & (1 << (7 - y / 10))) != 0;
+			for (int x = 0; x < 90; x++) {
+				int grey = (brighterRight ? x : 89 - x) * 255 / 89;
+				image.setRGB(x, y, grey << 16 | grey << 8 | grey);
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,90 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CircuitBreakerTest {
+
+	private static final long LONG_OPEN = TimeUnit.MINUTES.toNanos(1);
+
+	@Test
+	public void recordFailure_belowThreshold_staysClosed() {
+		CircuitBreaker breaker = new CircuitBreaker(3, LONG_OPEN);
+
+		breaker.recordFailure();
+		breaker.recordFailure();
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void recordFailure_thresholdInARow_opensAndRefuses() {
+		CircuitBreaker breaker = new CircuitBreaker(3, LONG_OPEN);
+
+		for (int i = 0; i < 3; i++) {
+			breaker.recordFailure();
+		}
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+	}
+
+	@Test
+	public void recordSuccess_betweenFailures_resetsCount() {
+		CircuitBreaker breaker = new CircuitBreaker(2, LONG_OPEN);
+
+		breaker.recordFailure();
+		breaker.recordSuccess();
+		breaker.recordFailure();
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	public void allowRequest_afterOpenTime_singleTrial() {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0);
+		breaker.recordFailure();
+
+		assertTrue(breaker.allowRequest());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+	}
+
+	@Test
+	public void recordSuccess_trial_closes() {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0);
+		breaker.recordFailure();
+		breaker.allowRequest();
+
+		breaker.recordSuccess();
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void recordFailure_trial_reopens() {
+		CircuitBreaker breaker = new CircuitBreaker(1, 0);
+		breaker.recordFailure();
+		breaker.allowRequest();
+
+		breaker.recordFailure();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertTrue(breaker.allowRequest()); //open time of zero, a new trial at once
+	}
+
+	@Test
+	public void constructor_invalidArguments_rejected() {
+		assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, LONG_OPEN));
+		assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(1, -1));
+	}
+}
@@ -0,0 +1,212 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgedImageServiceTest {
+
+	private static final Duration DEADLINE = Duration.ofMillis(300); //hedges after half of it until there are latency samples
+
+	private final ControlledService primary = new ControlledService();
+	private final ControlledService secondary = new ControlledService();
+	private final BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+	private HedgedImageService imageService;
+
+	@AfterEach
+	public void close() {
+		if (imageService != null) {
+			imageService.close();
+		}
+	}
+
+	@Test
+	public void imageContainsCat_primaryAnswers_secondaryNotAsked() {
+		imageService = new HedgedImageService(primary.answering(true), secondary.answering(false), DEADLINE);
+
+		assertTrue(imageService.imageContainsCat(image, 50f));
+		assertEquals(0, secondary.calls.size());
+		assertEquals(0, imageService.getHedgedCount());
+	}
+
+	@Test
+	public void imageContainsCat_primarySlow_hedgedToSecondary() {
+		imageService = new HedgedImageService(primary, secondary.answering(true), DEADLINE);
+
+		assertTrue(imageService.imageContainsCat(image, 50f));
+		assertEquals(1, primary.calls.size());
+		assertEquals(1, secondary.calls.size());
+		assertEquals(1, imageService.getHedgedCount());
+	}
+
+	@Test
+	public void imageContainsCatAsync_primaryFails_secondaryAskedAtOnce() {
+		imageService = new HedgedImageService(primary.failing(), secondary, Duration.ofSeconds(10));
+
+		CompletableFuture<Boolean> result = imageService.imageContainsCatAsync(image, 50f);
+
+		assertEquals(1, secondary.calls.size());
+		secondary.answer(0, false);
+		assertFalse(result.join());
+		assertEquals(1, imageService.getHedgedCount());
+	}
+
+	@Test
+	public void imageContainsCat_bothFail_failureRethrown() {
+		imageService = new HedgedImageService(primary.failing(), secondary.failing(), DEADLINE);
+
+		assertThrows(UnsupportedOperationException.class, () -> imageService.imageContainsCat(image, 50f));
+		assertEquals(0, imageService.getTimeoutCount());
+	}
+
+	@Test
+	public void imageContainsCat_neitherAnswers_timesOut() {
+		imageService = new HedgedImageService(primary, secondary, DEADLINE);
+
+		assertThrows(IllegalStateException.class, () -> imageService.imageContainsCat(image, 50f));
+		await(() -> imageService.getTimeoutCount() == 1); //counted just after the scan fails
+		assertEquals(1, secondary.calls.size());
+	}
+
+	@Test
+	public void imageContainsCat_primaryFailuresReachThreshold_primarySkipped() {
+		imageService = new HedgedImageService(primary.failing(), secondary.answering(true), DEADLINE, 0.95, 2, Duration.ofMinutes(1));
+
+		imageService.imageContainsCat(image, 50f);
+		assertFalse(imageService.isPrimaryCircuitOpen());
+		imageService.imageContainsCat(image, 50f);
+		assertTrue(imageService.isPrimaryCircuitOpen());
+		assertTrue(imageService.imageContainsCat(image, 50f));
+
+		assertEquals(2, primary.calls.size());
+		assertEquals(3, secondary.calls.size());
+		assertEquals(1, imageService.getSkippedPrimaryCount());
+	}
+
+	/**
+	 * The secondary winning must not stop the primary's own deadline: a primary that never answers
+	 * is still a failure.
+	 */
+	@Test
+	public void imageContainsCat_primaryHangsWhileSecondaryWins_countedAsFailure() {
+		imageService = new HedgedImageService(primary, secondary.answering(true), DEADLINE, 0.95, 1, Duration.ofMinutes(1));
+
+		assertTrue(imageService.imageContainsCat(image, 50f));
+		assertFalse(imageService.isPrimaryCircuitOpen());
+
+		await(imageService::isPrimaryCircuitOpen);
+		imageService.imageContainsCat(image, 50f);
+		assertEquals(1, primary.calls.size());
+		assertEquals(1, imageService.getSkippedPrimaryCount());
+	}
+
+	/**
+	 * With no open time the circuit is half-open straight after opening. A trial that hangs must reopen
+	 * the circuit at its deadline so that a later scan gets a new trial.
+	 */
+	@Test
+	public void imageContainsCat_halfOpenTrialHangs_newTrialAfterDeadline() {
+		imageService = new HedgedImageService(primary, secondary.answering(true), DEADLINE, 0.95, 1, Duration.ZERO);
+		imageService.imageContainsCat(image, 50f);
+		await(imageService::isPrimaryCircuitOpen);
+
+		imageService.imageContainsCat(image, 50f); //the trial, hangs
+		imageService.imageContainsCat(image, 50f); //trial still running, primary skipped
+		assertEquals(2, primary.calls.size());
+		assertEquals(1, imageService.getSkippedPrimaryCount());
+
+		await(() -> {
+			imageService.imageContainsCat(image, 50f);
+			return primary.calls.size() == 3;
+		});
+	}
+
+	@Test
+	public void imageContainsCatAsync_halfOpenTrialSucceeds_circuitClosed() {
+		imageService = new HedgedImageService(primary.failing(), secondary.answering(true), DEADLINE, 0.95, 1, Duration.ZERO);
+		imageService.imageContainsCat(image, 50f);
+		assertTrue(imageService.isPrimaryCircuitOpen());
+
+		primary.failure = null;
+		CompletableFuture<Boolean> trial = imageService.imageContainsCatAsync(image, 50f);
+		primary.answer(1, false);
+
+		assertFalse(trial.join());
+		assertFalse(imageService.isPrimaryCircuitOpen());
+	}
+
+	@Test
+	public void constructor_invalidArguments_rejected() {
+		assertThrows(IllegalArgumentException.class, () -> new HedgedImageService(primary, secondary, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class,
+				() -> new HedgedImageService(primary, secondary, DEADLINE, 1.5, 5, Duration.ofSeconds(1)));
+		assertThrows(IllegalArgumentException.class,
+				() -> new HedgedImageService(primary, secondary, DEADLINE, 0.95, 0, Duration.ofSeconds(1)));
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "condition not reached");
+			try {
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AssertionError(e);
+			}
+		}
+	}
+
+	/**
+	 * Service whose scans answer at once with a fixed verdict or failure if one is set, and otherwise
+	 * only when the test answers them.
+	 */
+	private static final class ControlledService implements ImageService {
+		final List<CompletableFuture<Boolean>> calls = new CopyOnWriteArrayList<>();
+		volatile Boolean verdict;
+		volatile RuntimeException failure;
+
+		ControlledService answering(boolean cat) {
+			verdict = cat;
+			return this;
+		}
+
+		ControlledService failing() {
+			failure = new UnsupportedOperationException("service down");
+			return this;
+		}
+
+		void answer(int call, boolean cat) {
+			calls.get(call).complete(cat);
+		}
+
+		@Override
+		public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+			return imageContainsCatAsync(image, confidenceThreshhold).join();
+		}
+
+		@Override
+		public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+			CompletableFuture<Boolean> call = new CompletableFuture<>();
+			calls.add(call);
+			if (failure != null) {
+				call.completeExceptionally(failure);
+			} else if (verdict != null) {
+				call.complete(verdict);
+			}
+			return call;
+		}
+	}
+}
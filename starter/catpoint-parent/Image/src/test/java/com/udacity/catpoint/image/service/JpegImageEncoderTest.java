@@ -0,0 +1,105 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JpegImageEncoderTest {
+
+	@Test
+	public void encode_largerThanMaxEdge_scaledToMaxEdge() throws IOException {
+		JpegImageEncoder encoder = new JpegImageEncoder(400, 0.8f);
+
+		BufferedImage landscape = decode(encoder.encode(noise(1600, 1200, BufferedImage.TYPE_INT_RGB)));
+		BufferedImage portrait = decode(encoder.encode(noise(300, 1200, BufferedImage.TYPE_INT_RGB)));
+
+		assertEquals(400, landscape.getWidth());
+		assertEquals(300, landscape.getHeight());
+		assertEquals(100, portrait.getWidth());
+		assertEquals(400, portrait.getHeight());
+	}
+
+	@Test
+	public void encode_smallerThanMaxEdge_keepsSize() throws IOException {
+		JpegImageEncoder encoder = new JpegImageEncoder(400, 0.8f);
+
+		BufferedImage rgb = decode(encoder.encode(noise(200, 100, BufferedImage.TYPE_INT_RGB)));
+		BufferedImage argb = decode(encoder.encode(noise(120, 90, BufferedImage.TYPE_INT_ARGB)));
+
+		assertEquals(200, rgb.getWidth());
+		assertEquals(100, rgb.getHeight());
+		assertEquals(120, argb.getWidth());
+		assertEquals(90, argb.getHeight());
+	}
+
+	@Test
+	public void encode_higherQuality_moreBytes() throws IOException {
+		BufferedImage image = noise(320, 240, BufferedImage.TYPE_INT_RGB);
+
+		int low = new JpegImageEncoder(400, 0.2f).encode(image).length;
+		int high = new JpegImageEncoder(400, 0.95f).encode(image).length;
+
+		assertTrue(high > low, "quality 0.95 gave " + high + " bytes, quality 0.2 gave " + low);
+	}
+
+	/**
+	 * The scaling canvas is reused, so a transparent image must not show the previous frame.
+	 */
+	@Test
+	public void encode_transparentAfterOpaque_previousFrameCleared() throws IOException {
+		JpegImageEncoder encoder = new JpegImageEncoder(100, 0.9f);
+		BufferedImage red = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 200; y++) {
+			for (int x = 0; x < 200; x++) {
+				red.setRGB(x, y, 0xFF0000);
+			}
+		}
+
+		encoder.encode(red);
+		BufferedImage cleared = decode(encoder.encode(new BufferedImage(200, 200, BufferedImage.TYPE_INT_ARGB)));
+
+		assertTrue(((cleared.getRGB(50, 50) >> 16) & 0xFF) < 32, "previous red frame shows through");
+	}
+
+	@Test
+	public void encode_counts_imagesAndBytes() throws IOException {
+		JpegImageEncoder encoder = new JpegImageEncoder(400, 0.8f);
+
+		int first = encoder.encode(noise(100, 100, BufferedImage.TYPE_INT_RGB)).length;
+		int second = encoder.encode(noise(500, 500, BufferedImage.TYPE_INT_RGB)).length;
+
+		assertEquals(2, encoder.getEncodedImages());
+		assertEquals(first + second, encoder.getEncodedBytes());
+		assertTrue(encoder.getEncodeNanos() > 0);
+	}
+
+	@Test
+	public void constructor_invalidArguments_rejected() {
+		assertThrows(IllegalArgumentException.class, () -> new JpegImageEncoder(0, 0.8f));
+		assertThrows(IllegalArgumentException.class, () -> new JpegImageEncoder(400, -0.1f));
+		assertThrows(IllegalArgumentException.class, () -> new JpegImageEncoder(400, 1.1f));
+	}
+
+	private static BufferedImage decode(byte[] jpeg) throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(jpeg));
+	}
+
+	private static BufferedImage noise(int width, int height, int type) {
+		Random random = new Random(42);
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				image.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+			}
+		}
+		return image;
+	}
+}
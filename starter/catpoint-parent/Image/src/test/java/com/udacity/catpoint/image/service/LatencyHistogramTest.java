@@ -0,0 +1,133 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketOf_smallValues_exact() {
+		for (int value = 0; value < 64; value++) {
+			assertEquals(value, LatencyHistogram.bucketOf(value));
+			assertEquals(value, LatencyHistogram.highestValueIn(value));
+		}
+	}
+
+	@Test
+	public void bucketOf_powerOfTwoBoundaries_startNewBucket() {
+		for (int power = 6; power < 63; power++) {
+			long start = 1L << power;
+			assertEquals(LatencyHistogram.bucketOf(start - 1) + 1, LatencyHistogram.bucketOf(start), "2^" + power);
+			assertEquals(start - 1, LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(start - 1)), "2^" + power);
+		}
+		assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+	}
+
+	/**
+	 * Every value lies in its bucket, above the previous bucket, and the bucket is at most 1/32 of the value wide.
+	 */
+	@Test
+	public void bucketOf_randomValues_withinBucketBounds() {
+		Random random = new Random(42);
+		for (int i = 0; i < 100_000; i++) {
+			long value = (random.nextLong() >>> 1) >>> random.nextInt(63); //any magnitude up to Long.MAX_VALUE
+			int bucket = LatencyHistogram.bucketOf(value);
+			long high = LatencyHistogram.highestValueIn(bucket);
+			long low = bucket == 0 ? 0 : LatencyHistogram.highestValueIn(bucket - 1) + 1;
+
+			assertTrue(low <= value && value <= high, value + " outside bucket " + low + ".." + high);
+			assertTrue(high - low <= value / 32, value + " in a bucket " + (high - low + 1) + " wide");
+		}
+	}
+
+	@Test
+	public void getValueAtPercentile_oneToHundred_reportsBucketTops() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int value = 1; value <= 100; value++) {
+			histogram.record(value);
+		}
+
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(50, histogram.getValueAtPercentile(50));
+		assertEquals(91, histogram.getValueAtPercentile(90)); //90 and 91 share a bucket
+		assertEquals(99, histogram.getValueAtPercentile(99));
+		assertEquals(100, histogram.getValueAtPercentile(100)); //bucket top capped at the max
+	}
+
+	@Test
+	public void getValueAtPercentile_largeValues_withinThreePercent() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1_000_000L);
+		}
+
+		long p50 = histogram.getValueAtPercentile(50);
+		long p99 = histogram.getValueAtPercentile(99);
+
+		assertTrue(p50 >= 500_000_000L && p50 <= 500_000_000L * 1.03, "p50 " + p50);
+		assertTrue(p99 >= 990_000_000L && p99 <= 990_000_000L * 1.03, "p99 " + p99);
+	}
+
+	@Test
+	public void record_negative_countsAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		histogram.record(-5);
+
+		assertEquals(1, histogram.getCount());
+		assertEquals(0, histogram.getMax());
+		assertEquals(0, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void getters_nothingRecorded_zero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMean());
+		assertEquals(0, histogram.getValueAtPercentile(99));
+	}
+
+	@Test
+	public void snapshot_convertsToMicros() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(2_000);
+		histogram.record(4_000);
+
+		LatencySnapshot snapshot = histogram.snapshot();
+
+		assertEquals(2, snapshot.getCount());
+		assertEquals(3.0, snapshot.getMeanMicros(), 0.001);
+		assertEquals(4.0, snapshot.getMaxMicros(), 0.001);
+		assertTrue(snapshot.getP50Micros() >= 2.0 && snapshot.getP50Micros() <= 2.0 * 1.03, "p50 " + snapshot.getP50Micros());
+	}
+
+	@Test
+	public void record_concurrently_nothingLost() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 1; i <= 10_000; i++) {
+					histogram.record(i);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40_000, histogram.getCount());
+		assertEquals(10_000, histogram.getMax());
+		assertEquals(5_000.5, histogram.getMean(), 0.001);
+		assertEquals(10_000, histogram.getValueAtPercentile(100));
+	}
+}
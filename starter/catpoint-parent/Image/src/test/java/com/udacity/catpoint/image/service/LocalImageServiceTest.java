@@ -0,0 +1,113 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The bundled model is experimental and was fitted on the two sample images, so the sample checks
+ * below only show that the model loads and scores its own training images the right way round. They
+ * are not a held-out accuracy measurement.
+ */
+public class LocalImageServiceTest {
+
+	private final LocalImageService imageService = new LocalImageService();
+
+	@Test
+	public void imageContainsCat_sampleCat_true() throws IOException {
+		assertTrue(imageService.imageContainsCat(sample("sample-cat.jpg"), 50f));
+	}
+
+	@Test
+	public void imageContainsCat_sampleNotCat_false() throws IOException {
+		assertFalse(imageService.imageContainsCat(sample("sample-not-cat.jpg"), 50f));
+	}
+
+	@Test
+	public void catConfidence_samples_withinScaleAndOrdered() throws IOException {
+		float cat = imageService.catConfidence(sample("sample-cat.jpg"));
+		float notCat = imageService.catConfidence(sample("sample-not-cat.jpg"));
+
+		assertTrue(cat >= 0 && cat <= 100, "cat confidence " + cat);
+		assertTrue(notCat >= 0 && notCat <= 100, "not cat confidence " + notCat);
+		assertTrue(cat > notCat, "cat " + cat + " not above not cat " + notCat);
+	}
+
+	/**
+	 * Scratch buffers are reused, so scoring another image in between must not change the result.
+	 */
+	@Test
+	public void catConfidence_sameImageAfterAnother_sameResult() throws IOException {
+		BufferedImage cat = sample("sample-cat.jpg");
+
+		float first = imageService.catConfidence(cat);
+		imageService.catConfidence(sample("sample-not-cat.jpg"));
+
+		assertEquals(first, imageService.catConfidence(cat));
+	}
+
+	@Test
+	public void catConfidence_otherThread_sameResult() throws IOException {
+		BufferedImage cat = sample("sample-cat.jpg");
+
+		float here = imageService.catConfidence(cat);
+		float there = CompletableFuture.supplyAsync(() -> imageService.catConfidence(cat)).join();
+
+		assertEquals(here, there);
+	}
+
+	@Test
+	public void features_oneValuePerFeature() throws IOException {
+		assertEquals(LocalImageService.FEATURE_COUNT, LocalImageService.features(sample("sample-cat.jpg"), 48).length);
+	}
+
+	@Test
+	public void constructor_invalidModel_rejected() {
+		Properties missingWeights = model(48);
+		missingWeights.remove("weights");
+		Properties shortMean = model(48);
+		shortMean.setProperty("mean", "0,0,0");
+
+		assertThrows(IllegalArgumentException.class, () -> new LocalImageService(missingWeights));
+		assertThrows(IllegalArgumentException.class, () -> new LocalImageService(shortMean));
+		assertThrows(IllegalArgumentException.class, () -> new LocalImageService(model(4)));
+	}
+
+	@Test
+	public void catConfidence_zeroWeightsAndBias_fifty() {
+		Properties model = model(16);
+		model.setProperty("bias", "0");
+
+		assertEquals(50f, new LocalImageService(model).catConfidence(new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB)), 0.001f);
+	}
+
+	private static Properties model(int size) {
+		String zeros = String.join(",", Collections.nCopies(LocalImageService.FEATURE_COUNT, "0"));
+		Properties model = new Properties();
+		model.setProperty("size", Integer.toString(size));
+		model.setProperty("mean", zeros);
+		model.setProperty("scale", zeros);
+		model.setProperty("weights", zeros);
+		model.setProperty("bias", "1");
+		return model;
+	}
+
+	private static BufferedImage sample(String name) throws IOException {
+		try (InputStream is = LocalImageServiceTest.class.getResourceAsStream("/" + name)) {
+			assertNotNull(is, name + " is not on the test classpath");
+			return ImageIO.read(is);
+		}
+	}
+}
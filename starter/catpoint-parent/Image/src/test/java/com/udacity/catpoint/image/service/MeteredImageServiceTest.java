@@ -0,0 +1,117 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MeteredImageServiceTest {
+
+	private final BufferedImage cat = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+	private final BufferedImage sofa = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+	private final BufferedImage broken = new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+	private final ImageService delegate = (image, confidenceThreshhold) -> {
+		if (image == broken) {
+			throw new IllegalStateException("scan failed");
+		}
+		return image == cat;
+	};
+	private final MeteredImageService imageService = new MeteredImageService(delegate);
+
+	@Test
+	public void imageContainsCat_verdicts_countedAndPassedThrough() {
+		assertTrue(imageService.imageContainsCat(cat, 50f));
+		imageService.imageContainsCat(sofa, 50f);
+		imageService.imageContainsCat(sofa, 50f);
+		imageService.imageContainsCat(cat, 50f);
+
+		assertEquals(4, imageService.getScanCount());
+		assertEquals(2, imageService.getCatCount());
+		assertEquals(0.5, imageService.getCatDetectionRate());
+		assertEquals(0, imageService.getFailureCount());
+	}
+
+	@Test
+	public void imageContainsCat_delegateThrows_failureCountedAndRethrown() {
+		assertThrows(IllegalStateException.class, () -> imageService.imageContainsCat(broken, 50f));
+
+		assertEquals(1, imageService.getFailureCount());
+		assertEquals(0, imageService.getScanCount());
+		assertEquals(0, imageService.getCatDetectionRate());
+	}
+
+	@Test
+	public void imageContainsCatAsync_completes_countedWhenDone() {
+		CompletableFuture<Boolean> scan = new CompletableFuture<>();
+		MeteredImageService pending = new MeteredImageService(new ImageService() {
+			@Override
+			public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold) {
+				return scan;
+			}
+		});
+
+		CompletableFuture<Boolean> result = pending.imageContainsCatAsync(cat, 50f);
+		assertEquals(0, pending.getScanCount());
+		scan.complete(true);
+
+		assertTrue(result.join());
+		assertEquals(1, pending.getScanCount());
+		assertEquals(1, pending.getCatCount());
+	}
+
+	@Test
+	public void imageContainsCatAsync_fails_failureCounted() {
+		CompletableFuture<Boolean> result = imageService.imageContainsCatAsync(broken, 50f);
+
+		assertThrows(CompletionException.class, result::join);
+		assertEquals(1, imageService.getFailureCount());
+		assertEquals(0, imageService.getScanCount());
+	}
+
+	@Test
+	public void getClassificationLatency_slowDelegate_recorded() {
+		MeteredImageService slow = new MeteredImageService((image, confidenceThreshhold) -> {
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		});
+
+		slow.imageContainsCat(sofa, 50f);
+		LatencySnapshot latency = slow.getClassificationLatency();
+
+		assertEquals(1, latency.getCount());
+		assertTrue(latency.getMaxMicros() >= 5_000, "max " + latency.getMaxMicros());
+	}
+
+	@Test
+	public void register_publishesAttributes() throws JMException {
+		ObjectName name = imageService.register("metered-image-service-test");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			imageService.imageContainsCat(cat, 50f);
+
+			assertEquals(1L, server.getAttribute(name, "ScanCount"));
+			assertEquals(1L, server.getAttribute(name, "CatCount"));
+			assertThrows(IllegalStateException.class, () -> imageService.register("metered-image-service-test"));
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}
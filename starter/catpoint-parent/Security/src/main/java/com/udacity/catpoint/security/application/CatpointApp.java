@@ -1,11 +1,29 @@
 package com.udacity.catpoint.security.application;
 
+import javax.swing.*;
+import java.util.Arrays;
+
 /**
- * This is the main class that launches the application.
+ * This is the main class that launches the application. Pass --headless, or run with
+ * -Djava.awt.headless=true, to start {@link HeadlessServer} instead of the GUI.
  */
 public class CatpointApp {
-	public static void main(String[] args) {
-		CatpointGui gui = new CatpointGui();
-		gui.setVisible(true);
+	public static void main(String[] args) throws Exception {
+		StartupProfile startupProfile = new StartupProfile();
+		if (args.length > 0 && args[0].equals("--headless")) {
+			HeadlessServer.main(Arrays.copyOfRange(args, 1, args.length));
+		} else if (Boolean.getBoolean("java.awt.headless")) {
+			HeadlessServer.main(args);
+		} else {
+			startGui(startupProfile);
+		}
+	}
+
+	private static void startGui(StartupProfile startupProfile) {
+		SwingUtilities.invokeLater(() -> {
+			startupProfile.mark("event thread");
+			CatpointGui gui = new CatpointGui(startupProfile);
+			gui.setVisible(true);
+		});
 	}
 }
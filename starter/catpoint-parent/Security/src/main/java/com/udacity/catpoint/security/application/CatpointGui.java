@@ -1,42 +1,124 @@
 package com.udacity.catpoint.security.application;
 
+import com.udacity.catpoint.image.service.LazyImageService;
 import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.MeteredImageService;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.ExecutionException;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
  *
  * We're not using any dependency injection framework, so this class also handles constructing
  * all our dependencies and providing them to other classes as necessary.
+ *
+ * Constructing the frame only wires up objects that do no work yet. The window first shows a
+ * loading message while the repository state is read on a background thread; the panels are built
+ * once it has been read, and the metrics are registered after that. The image service is only
+ * created when the first picture is scanned.
  */
 public class CatpointGui extends JFrame {
+	private final StartupProfile startupProfile;
 	private SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-	private FakeImageService imageService = new FakeImageService();
+	private MeteredImageService imageService = new MeteredImageService(new LazyImageService(() -> new FakeImageService()));
 	private SecurityService securityService = new SecurityService(securityRepository, imageService);
-	private DisplayPanel displayPanel = new DisplayPanel(securityService);
-	private ControlPanel controlPanel = new ControlPanel(securityService);
-	private SensorPanel sensorPanel = new SensorPanel(securityService);
-	private ImagePanel imagePanel = new ImagePanel(securityService);
+	private JLabel loadingLabel = new JLabel("Loading system state...");
+	private boolean loaded;
+	private boolean firstFramePainted;
+	private boolean reported;
 
 	public CatpointGui() {
+		this(new StartupProfile());
+	}
+
+	CatpointGui(StartupProfile startupProfile) {
+		this.startupProfile = startupProfile;
 		setLocation(100, 100);
 		setSize(600, 850);
 		setTitle("Very Secure App");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
+		//reports the first frame, and the first frame with the panels, once each has been painted
+		setContentPane(new JPanel(new BorderLayout()) {
+			@Override
+			protected void paintChildren(Graphics g) {
+				super.paintChildren(g);
+				framePainted();
+			}
+		});
+		loadingLabel.setHorizontalAlignment(SwingConstants.CENTER);
+		getContentPane().add(loadingLabel);
+		startupProfile.mark("wiring");
+
+		new StateLoader().execute();
+	}
+
+	/**
+	 * Builds the panels, which read the already loaded state, and replaces the loading message with them.
+	 */
+	private void showPanels() {
 		JPanel mainPanel = new JPanel();
 		mainPanel.setLayout(new MigLayout());
-		mainPanel.add(displayPanel, "wrap");
-		mainPanel.add(imagePanel, "wrap");
-		mainPanel.add(controlPanel, "wrap");
-		mainPanel.add(sensorPanel);
+		mainPanel.add(new DisplayPanel(securityService), "wrap");
+		mainPanel.add(new ImagePanel(securityService), "wrap");
+		mainPanel.add(new ControlPanel(securityService), "wrap");
+		mainPanel.add(new SensorPanel(securityService));
 
+		getContentPane().remove(loadingLabel);
 		getContentPane().add(mainPanel);
+		loaded = true;
+		startupProfile.mark("panels");
+		getContentPane().revalidate();
+		getContentPane().repaint();
+	}
+
+	private void framePainted() {
+		if (!loaded && !firstFramePainted) {
+			firstFramePainted = true;
+			startupProfile.mark("first frame");
+		} else if (loaded && !reported) {
+			reported = true;
+			startupProfile.report("first loaded frame", System.out);
+			//published over JMX so the console can be watched with jconsole or any JMX scraper;
+			//starting the platform MBean server is slow, so it waits until the window is usable
+			Thread metrics = new Thread(this::registerMetrics, "catpoint-metrics");
+			metrics.setDaemon(true);
+			metrics.start();
+		}
+	}
+
+	private void registerMetrics() {
+		securityService.registerMetrics("catpoint");
+		imageService.register("catpoint");
+	}
+
+	/**
+	 * Reads the repository state off the event dispatch thread.
+	 */
+	private class StateLoader extends SwingWorker<Void, Void> {
+		@Override
+		protected Void doInBackground() {
+			securityService.load();
+			startupProfile.mark("state loaded");
+			return null;
+		}
 
+		@Override
+		protected void done() {
+			try {
+				get();
+				showPanels();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				loadingLabel.setText("Unable to load system state: " + e.getCause().getMessage());
+			}
+		}
 	}
 }
@@ -6,6 +6,7 @@ import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.awt.*;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -37,7 +38,7 @@ public class ControlPanel extends JPanel {
 		buttonMap.forEach((k, v) -> {
 			v.addActionListener(e -> {
 				securityService.setArmingStatus(k);
-				buttonMap.forEach((status, button) -> button.setBackground(status == k ? status.getColor() : null));
+				buttonMap.forEach((status, button) -> button.setBackground(status == k ? new Color(status.getRgb()) : null));
 			});
 		});
 
@@ -45,7 +46,7 @@ public class ControlPanel extends JPanel {
 		Arrays.stream(ArmingStatus.values()).forEach(status -> add(buttonMap.get(status)));
 
 		ArmingStatus currentStatus = securityService.getArmingStatus();
-		buttonMap.get(currentStatus).setBackground(currentStatus.getColor());
+		buttonMap.get(currentStatus).setBackground(new Color(currentStatus.getRgb()));
 
 
 	}
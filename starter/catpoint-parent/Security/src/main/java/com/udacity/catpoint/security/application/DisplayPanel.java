@@ -6,6 +6,7 @@ import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.awt.*;
 
 /**
  * Displays the current status of the system. Implements the StatusListener
@@ -19,7 +20,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
 		super();
 		setLayout(new MigLayout());
 
-		securityService.addStatusListener(this);
+		securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
 		JLabel panelLabel = new JLabel("Very Secure Home Security");
 		JLabel systemStatusLabel = new JLabel("System Status:");
@@ -38,7 +39,7 @@ public class DisplayPanel extends JPanel implements StatusListener {
 	@Override
 	public void notify(AlarmStatus status) {
 		currentStatusLabel.setText(status.getDescription());
-		currentStatusLabel.setBackground(status.getColor());
+		currentStatusLabel.setBackground(new Color(status.getRgb()));
 		currentStatusLabel.setOpaque(true);
 	}
 
@@ -0,0 +1,271 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.service.AwsImageService;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.image.service.LazyImageService;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournalSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs the security service without a display. Only the repository, the service and a line based
+ * command reader are started; no AWT or Swing class is loaded unless a camera image is submitted.
+ * The repository state and the image service are both created the first time they are needed, so
+ * the process is ready for commands as soon as the JVM is.
+ *
+ * Commands are read from standard input, one per line, so events can be piped in from another
+ * process or a named pipe. Status changes are written to standard output. Type help for the commands.
+ */
+public class HeadlessServer implements StatusListener {
+
+	static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: CatpointApp --headless [options]",
+			"  --image <name>           fake or aws (default fake)",
+			"  --journal <dir>          keep state in a journal in this directory instead of user preferences",
+			"  --jmx                    publish service metrics over JMX",
+			"  --help                   show this message");
+
+	static final String COMMANDS = String.join(System.lineSeparator(),
+			"Commands:",
+			"  status                   arming status, alarm status and active sensors",
+			"  zones                    arming status, alarm status and active sensors of each zone",
+			"  sensors                  list all sensors",
+			"  add <type>[@zone] <name> add a DOOR, WINDOW or MOTION sensor, in the default zone unless one is given",
+			"  remove <name>            remove a sensor",
+			"  activate <name>          mark a sensor active",
+			"  deactivate <name>        mark a sensor inactive",
+			"  arm home|away [zone]     arm the system, or only one zone",
+			"  disarm [zone]            disarm the system, or only one zone",
+			"  image <file>             scan a camera image for cats",
+			"  quit                     stop the server");
+
+	private final SecurityService securityService;
+	private final PrintStream out;
+
+	HeadlessServer(SecurityService securityService, PrintStream out) {
+		this.securityService = securityService;
+		this.out = out;
+		securityService.addStatusListener(this);
+	}
+
+	public static void main(String[] args) throws Exception {
+		long start = System.nanoTime();
+		String image = "fake";
+		Path journal = null;
+		boolean jmx = false;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--image":
+				case "--journal":
+					if (i + 1 == args.length) {
+						exitWithUsage("Missing value for " + args[i]);
+					}
+					if (args[i].equals("--image")) {
+						image = args[++i];
+					} else {
+						journal = Path.of(args[++i]);
+					}
+					break;
+				case "--jmx":
+					jmx = true;
+					break;
+				case "--help":
+					System.out.println(USAGE);
+					System.out.println(COMMANDS);
+					return;
+				default:
+					exitWithUsage("Unknown option: " + args[i]);
+			}
+		}
+
+		SecurityRepository repository = journal == null
+				? new PretendDatabaseSecurityRepositoryImpl()
+				: new JournalSecurityRepositoryImpl(journal, 10_000);
+		LazyImageService imageService = new LazyImageService(imageServiceFactory(image));
+		SecurityService securityService = new SecurityService(repository, imageService);
+		if (jmx) {
+			securityService.registerMetrics("catpoint");
+		}
+		HeadlessServer server = new HeadlessServer(securityService, System.out);
+		System.out.printf("Catpoint ready in %d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+		try {
+			server.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+		} finally {
+			try {
+				if (repository instanceof JournalSecurityRepositoryImpl) {
+					((JournalSecurityRepositoryImpl) repository).close();
+				} else {
+					((PretendDatabaseSecurityRepositoryImpl) repository).shutdown();
+				}
+			} finally {
+				imageService.close();
+			}
+		}
+	}
+
+	/**
+	 * Executes commands until quit or the end of input. A command that fails is reported and the next
+	 * one is read; only failing to read the input ends the loop.
+	 */
+	void run(BufferedReader in) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if (line.equals("quit")) {
+				return;
+			}
+			try {
+				execute(line);
+			} catch (IOException | RuntimeException e) {
+				out.println("error: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+			}
+		}
+	}
+
+	private void execute(String line) throws IOException {
+		String[] parts = line.split("\\s+", 2);
+		String argument = parts.length > 1 ? parts[1] : "";
+		switch (parts[0]) {
+			case "status":
+				out.printf("%s, %s, %d active sensors%n", securityService.getArmingStatus(),
+						securityService.getAlarmStatus(), securityService.getActiveSensorCount());
+				break;
+			case "zones":
+				for (String zone : securityService.getZones()) {
+					out.printf("%s: %s, %s, %d active sensors%n", zone, securityService.getArmingStatus(zone),
+							securityService.getAlarmStatus(zone), securityService.getActiveSensorCount(zone));
+				}
+				break;
+			case "sensors":
+				for (Sensor sensor : securityService.getSensors()) {
+					out.printf("%s %s %s %s%n", sensor.getName(), sensor.getSensorType(), sensor.getZone(),
+							Boolean.TRUE.equals(sensor.getActive()) ? "active" : "inactive");
+				}
+				break;
+			case "add":
+				String[] typeAndName = argument.split("\\s+", 2);
+				if (typeAndName.length < 2) {
+					throw new IllegalArgumentException("Usage: add <type>[@zone] <name>");
+				}
+				String[] typeAndZone = typeAndName[0].split("@", 2);
+				securityService.addSensor(new Sensor(typeAndName[1],
+						SensorType.valueOf(typeAndZone[0].toUpperCase(Locale.ROOT)),
+						typeAndZone.length > 1 ? typeAndZone[1] : null));
+				break;
+			case "remove":
+				securityService.removeSensor(sensor(argument));
+				break;
+			case "activate":
+			case "deactivate":
+				Sensor sensor = sensor(argument);
+				securityService.changeSensorActivationStatus(sensor, parts[0].equals("activate"));
+				break;
+			case "arm":
+				String[] modeAndZone = argument.split("\\s+", 2);
+				if (!modeAndZone[0].equals("home") && !modeAndZone[0].equals("away")) {
+					throw new IllegalArgumentException("Usage: arm home|away [zone]");
+				}
+				setArmingStatus(modeAndZone[0].equals("home") ? ArmingStatus.ARMED_HOME : ArmingStatus.ARMED_AWAY,
+						modeAndZone.length > 1 ? modeAndZone[1] : "");
+				break;
+			case "disarm":
+				setArmingStatus(ArmingStatus.DISARMED, argument);
+				break;
+			case "image":
+				//the only command that needs the imaging classes, which are loaded here on first use
+				securityService.processImage(readImage(new File(argument)));
+				break;
+			case "help":
+				out.println(COMMANDS);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown command: " + parts[0]);
+		}
+	}
+
+	/**
+	 * Arms or disarms one zone, or the whole system if no zone is given.
+	 */
+	private void setArmingStatus(ArmingStatus armingStatus, String zone) {
+		if (zone.isEmpty()) {
+			securityService.setArmingStatus(armingStatus);
+		} else {
+			securityService.setArmingStatus(zone, armingStatus);
+		}
+	}
+
+	private Sensor sensor(String name) {
+		for (Sensor sensor : securityService.getSensors()) {
+			if (Objects.equals(sensor.getName(), name)) {
+				return sensor;
+			}
+		}
+		throw new IllegalArgumentException("No sensor named " + name);
+	}
+
+	@Override
+	public void notify(AlarmStatus status) {
+		out.println("alarm " + status);
+	}
+
+	@Override
+	public void catDetected(boolean catDetected) {
+		out.println(catDetected ? "cat detected" : "no cat");
+	}
+
+	@Override
+	public void sensorStatusChanged() {
+		//sensors are listed on request, there is nothing to redraw
+	}
+
+	private static Supplier<ImageService> imageServiceFactory(String image) {
+		//lambdas rather than constructor references, which would load the service classes right away
+		switch (image) {
+			case "fake":
+				return () -> new FakeImageService();
+			case "aws":
+				return () -> new AwsImageService();
+			default:
+				exitWithUsage("Unknown image service: " + image);
+				return null;
+		}
+	}
+
+	private static void exitWithUsage(String message) {
+		System.err.println(message);
+		System.err.println(USAGE);
+		System.exit(2);
+	}
+
+	private static BufferedImage readImage(File file) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if (image == null) {
+			throw new IllegalArgumentException("Not an image: " + file);
+		}
+		return image;
+	}
+}
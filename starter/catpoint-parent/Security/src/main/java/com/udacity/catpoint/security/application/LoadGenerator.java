@@ -0,0 +1,459 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.service.AsyncAwsImageService;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageService;
+import com.udacity.catpoint.image.service.LatencyHistogram;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournalSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.service.CameraRegistry;
+import com.udacity.catpoint.security.service.SecurityEventLoop;
+import com.udacity.catpoint.security.service.SecurityMetricsMXBean;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Headless load generator for capacity planning. Builds a {@link SecurityService} with the chosen
+ * repository and image service, then drives it with synthetic sensors, cameras and arming changes at
+ * fixed rates for a fixed time and prints throughput and latency percentiles.
+ *
+ * Sensor changes are sent open-loop: each one has a scheduled start time, and its latency is measured
+ * from that time rather than from when the call was actually made, so a service that falls behind
+ * shows the queueing delay instead of hiding it. With --event-loop a change counts as done once it is
+ * published to the loop, so the figures are publish latency; how long the loop then takes to apply the
+ * backlog is printed as its drain time when the run stops.
+ *
+ * The prefs repositories write to Preferences under a temporary user root, unless
+ * java.util.prefs.userRoot is already set, so a run neither reads nor overwrites the real application's
+ * saved sensors. The journal directory is deleted when the run ends; the preferences root is not, because
+ * Preferences still syncs to it while the JVM exits.
+ *
+ * Run with --help for the options.
+ */
+public class LoadGenerator {
+
+	private static final ArmingStatus[] ARMING_CYCLE = {ArmingStatus.ARMED_AWAY, ArmingStatus.ARMED_HOME, ArmingStatus.DISARMED};
+
+	private final Options options;
+	private final LatencyHistogram sensorLatency = new LatencyHistogram();
+	private final LatencyHistogram armingLatency = new LatencyHistogram();
+	private volatile boolean running = true;
+	private final List<Path> temporaryDirectories = new ArrayList<>();
+
+	LoadGenerator(Options options) {
+		this.options = options;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Options options;
+		try {
+			options = Options.parse(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(Options.USAGE);
+			System.exit(2);
+			return;
+		}
+		if (options.help) {
+			System.out.println(Options.USAGE);
+			return;
+		}
+		new LoadGenerator(options).run();
+		System.exit(0); //repository and image service threads may still be winding down
+	}
+
+	/**
+	 * Runs the load, then closes the repository and image service and deletes the journal directory,
+	 * also when the run fails.
+	 */
+	void run() throws Exception {
+		try {
+			SecurityRepository repository = createRepository();
+			try {
+				ImageService imageService = createImageService();
+				try {
+					drive(repository, imageService);
+				} finally {
+					if (imageService instanceof AutoCloseable) {
+						((AutoCloseable) imageService).close();
+					}
+				}
+			} finally {
+				if (repository instanceof JournalSecurityRepositoryImpl) {
+					((JournalSecurityRepositoryImpl) repository).close();
+				} else if (repository instanceof PretendDatabaseSecurityRepositoryImpl) {
+					((PretendDatabaseSecurityRepositoryImpl) repository).shutdown();
+				}
+			}
+		} finally {
+			deleteTemporaryDirectories();
+		}
+	}
+
+	private void drive(SecurityRepository repository, ImageService imageService) throws InterruptedException {
+		SecurityService securityService = new SecurityService(repository, imageService);
+
+		Sensor[] sensors = new Sensor[options.sensors];
+		SensorType[] types = SensorType.values();
+		for (int i = 0; i < sensors.length; i++) {
+			sensors[i] = new Sensor("Load sensor " + i, types[i % types.length]);
+			securityService.addSensor(sensors[i]);
+		}
+		securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+		SecurityEventLoop eventLoop = options.eventLoop ? new SecurityEventLoop(securityService, 8192) : null;
+		CameraRegistry cameras = new CameraRegistry(securityService, options.imageWorkers);
+		List<CameraRegistry.Camera> cameraList = new ArrayList<>();
+		for (int i = 0; i < options.cameras; i++) {
+			cameraList.add(cameras.register("camera-" + i));
+		}
+
+		System.out.printf("Running %d s: %d sensors at %d changes/s on %d threads, %d cameras at %d fps, %s repository, %s images%n",
+				options.durationSeconds, options.sensors, options.sensorRate, options.threads, options.cameras,
+				options.frameRate, options.repository, options.image);
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < options.threads && options.sensorRate > 0; t++) {
+			threads.add(start("load-sensors-" + t, () -> driveSensors(securityService, eventLoop, sensors)));
+		}
+		if (options.cameras > 0 && options.frameRate > 0) {
+			threads.add(start("load-cameras", () -> driveCameras(cameraList)));
+		}
+		if (options.armingIntervalSeconds > 0) {
+			threads.add(start("load-arming", () -> driveArming(securityService, eventLoop)));
+		}
+
+		long start = System.nanoTime();
+		Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+		running = false;
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long drainNanos = 0;
+		if (eventLoop != null) {
+			long closeStart = System.nanoTime();
+			eventLoop.close(); //returns once every published event is applied
+			drainNanos = System.nanoTime() - closeStart;
+		}
+		cameras.close();
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		report(securityService.getMetrics(), cameraList, seconds, drainNanos);
+	}
+
+	/**
+	 * Sends this thread's share of the sensor rate, each change at its scheduled time.
+	 */
+	private void driveSensors(SecurityService securityService, SecurityEventLoop eventLoop, Sensor[] sensors) {
+		long interval = TimeUnit.SECONDS.toNanos(1) * options.threads / options.sensorRate;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long next = System.nanoTime();
+		while (running) {
+			pauseUntil(next);
+			Sensor sensor = sensors[random.nextInt(sensors.length)];
+			boolean active = random.nextInt(100) < options.activePercent;
+			if (eventLoop != null) {
+				eventLoop.publishSensorChange(sensor, active);
+			} else {
+				synchronized (sensor) { //sensors are mutable, two threads must not change the same one at once
+					securityService.changeSensorActivationStatus(sensor, active);
+				}
+			}
+			sensorLatency.recordSince(next);
+			next += interval;
+		}
+	}
+
+	/**
+	 * Offers one frame per camera per frame interval, alternating between an empty room and a changed scene.
+	 */
+	private void driveCameras(List<CameraRegistry.Camera> cameras) {
+		BufferedImage[] frames = {frame(false), frame(true)};
+		long interval = TimeUnit.SECONDS.toNanos(1) / options.frameRate;
+		long next = System.nanoTime();
+		int tick = 0;
+		while (running) {
+			pauseUntil(next);
+			for (int i = 0; i < cameras.size(); i++) {
+				cameras.get(i).submit(frames[(tick + i) % frames.length]);
+			}
+			tick++;
+			next += interval;
+		}
+	}
+
+	private void driveArming(SecurityService securityService, SecurityEventLoop eventLoop) {
+		long interval = TimeUnit.SECONDS.toNanos(options.armingIntervalSeconds);
+		long next = System.nanoTime() + interval;
+		int step = 1;
+		while (running) {
+			pauseUntil(next);
+			if (!running) {
+				return;
+			}
+			ArmingStatus status = ARMING_CYCLE[step++ % ARMING_CYCLE.length];
+			if (eventLoop != null) {
+				eventLoop.publishArmingStatus(status);
+			} else {
+				securityService.setArmingStatus(status);
+			}
+			armingLatency.recordSince(next);
+			next += interval;
+		}
+	}
+
+	private void pauseUntil(long deadline) {
+		long wait;
+		while (running && (wait = deadline - System.nanoTime()) > 0) {
+			LockSupport.parkNanos(wait);
+		}
+	}
+
+	private void report(SecurityMetricsMXBean metrics, List<CameraRegistry.Camera> cameras, double seconds, long drainNanos) {
+		long submitted = 0;
+		long dropped = 0;
+		long classified = 0;
+		for (CameraRegistry.Camera camera : cameras) {
+			submitted += camera.getSubmittedFrames();
+			dropped += camera.getDroppedFrames();
+			classified += camera.getClassifiedFrames();
+		}
+		String latency = options.eventLoop ? "  publish latency  " : "  latency          ";
+		System.out.println();
+		System.out.printf("Sensor changes:   %,d (%,.0f/s)%n", sensorLatency.getCount(), sensorLatency.getCount() / seconds);
+		System.out.println(latency + sensorLatency.snapshot());
+		System.out.printf("Arming changes:   %,d%n", armingLatency.getCount());
+		System.out.println(latency + armingLatency.snapshot());
+		if (options.eventLoop) {
+			System.out.printf("Event loop drain: %.1f ms after the last publish%n", drainNanos / 1e6);
+		}
+		System.out.printf("Camera frames:    %,d offered, %,d classified (%,.0f/s), %,d dropped%n",
+				submitted, classified, classified / seconds, dropped);
+		System.out.println("  classification   " + metrics.getImageClassificationLatency());
+		System.out.println("Repository writes  " + metrics.getRepositoryWriteLatency());
+		System.out.println("Alarm transitions  " + metrics.getAlarmTransitions());
+		System.out.printf("Cat detection rate %.1f%%%n", metrics.getCatDetectionRate() * 100);
+	}
+
+	private SecurityRepository createRepository() throws IOException {
+		switch (options.repository) {
+			case "journal":
+				Path directory = Files.createTempDirectory("catpoint-load");
+				temporaryDirectories.add(directory);
+				return new JournalSecurityRepositoryImpl(directory, 100_000);
+			case "prefs":
+				isolatePreferences();
+				return new PretendDatabaseSecurityRepositoryImpl();
+			case "prefs-write-behind":
+				isolatePreferences();
+				return new PretendDatabaseSecurityRepositoryImpl(100, 1000);
+			default:
+				throw new IllegalArgumentException("Unknown repository: " + options.repository);
+		}
+	}
+
+	/**
+	 * Points the user Preferences root at a new temporary directory. Only takes effect before Preferences
+	 * is first used, which in this process is when the repository is created.
+	 */
+	private static void isolatePreferences() throws IOException {
+		if (System.getProperty("java.util.prefs.userRoot") == null) {
+			Path root = Files.createTempDirectory("catpoint-load-prefs");
+			System.setProperty("java.util.prefs.userRoot", root.toString());
+		}
+	}
+
+	private void deleteTemporaryDirectories() {
+		for (Path directory : temporaryDirectories) {
+			try (Stream<Path> paths = Files.walk(directory)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			} catch (IOException e) {
+				System.err.println("Unable to delete " + directory + ": " + e.getMessage());
+			}
+		}
+		temporaryDirectories.clear();
+	}
+
+	private ImageService createImageService() {
+		ImageService service;
+		switch (options.image) {
+			case "fake":
+				service = new FakeImageService();
+				break;
+			case "aws":
+				service = new AsyncAwsImageService();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown image service: " + options.image);
+		}
+		if (options.imageLatencyMillis == 0) {
+			return service;
+		}
+		ImageService delegate = service;
+		return (image, confidenceThreshhold) -> {
+			try {
+				Thread.sleep(options.imageLatencyMillis); //stands in for a remote call
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return delegate.imageContainsCat(image, confidenceThreshhold);
+		};
+	}
+
+	private static Thread start(String name, Runnable task) {
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	private static BufferedImage frame(boolean changed) {
+		BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setColor(new Color(0xb8a890));
+			g.fillRect(0, 0, 640, 480);
+			if (changed) {
+				g.setColor(new Color(0xc08040));
+				g.fillOval(200, 220, 240, 160);
+			}
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * Command line options, given as --name value or --name=value.
+	 */
+	static class Options {
+		static final String USAGE = String.join(System.lineSeparator(),
+				"Usage: LoadGenerator [options]",
+				"  --duration <s>           seconds to run (default 30)",
+				"  --sensors <n>            number of sensors (default 10000)",
+				"  --sensor-rate <n>        sensor changes per second across all threads (default 10000)",
+				"  --threads <n>            threads sending sensor changes (default 4)",
+				"  --active-percent <n>     share of changes that activate a sensor (default 50)",
+				"  --event-loop             send sensor and arming changes through a SecurityEventLoop (latency is then publish latency)",
+				"  --cameras <n>            number of cameras (default 16)",
+				"  --frame-rate <n>         frames per second per camera (default 5)",
+				"  --image-workers <n>      threads classifying frames (default 4)",
+				"  --image <name>           fake or aws (default fake)",
+				"  --image-latency-ms <n>   extra delay added to every classification (default 0)",
+				"  --arming-interval <s>    seconds between arming changes, 0 for none (default 10)",
+				"  --repository <name>      journal, prefs or prefs-write-behind (default journal), all in temporary storage",
+				"  --help                   show this message");
+
+		int durationSeconds = 30;
+		int sensors = 10_000;
+		int sensorRate = 10_000;
+		int threads = 4;
+		int activePercent = 50;
+		boolean eventLoop;
+		int cameras = 16;
+		int frameRate = 5;
+		int imageWorkers = 4;
+		String image = "fake";
+		int imageLatencyMillis;
+		int armingIntervalSeconds = 10;
+		String repository = "journal";
+		boolean help;
+
+		static Options parse(String[] args) {
+			Options o = new Options();
+			Map<String, String> values = new HashMap<>();
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (!arg.startsWith("--")) {
+					throw new IllegalArgumentException("Unexpected argument: " + arg);
+				}
+				int equals = arg.indexOf('=');
+				if (equals > 0) {
+					values.put(arg.substring(2, equals), arg.substring(equals + 1));
+				} else if (arg.equals("--event-loop") || arg.equals("--help")) {
+					values.put(arg.substring(2), "true");
+				} else if (i + 1 < args.length) {
+					values.put(arg.substring(2), args[++i]);
+				} else {
+					throw new IllegalArgumentException("Missing value for " + arg);
+				}
+			}
+			for (Map.Entry<String, String> e : values.entrySet()) {
+				String v = e.getValue();
+				switch (e.getKey()) {
+					case "duration": o.durationSeconds = positive(e.getKey(), v); break;
+					case "sensors": o.sensors = positive(e.getKey(), v); break;
+					case "sensor-rate": o.sensorRate = notNegative(e.getKey(), v); break;
+					case "threads": o.threads = positive(e.getKey(), v); break;
+					case "active-percent": o.activePercent = percent(e.getKey(), v); break;
+					case "event-loop": o.eventLoop = Boolean.parseBoolean(v); break;
+					case "cameras": o.cameras = notNegative(e.getKey(), v); break;
+					case "frame-rate": o.frameRate = notNegative(e.getKey(), v); break;
+					case "image-workers": o.imageWorkers = positive(e.getKey(), v); break;
+					case "image": o.image = oneOf(e.getKey(), v, "fake", "aws"); break;
+					case "image-latency-ms": o.imageLatencyMillis = notNegative(e.getKey(), v); break;
+					case "arming-interval": o.armingIntervalSeconds = notNegative(e.getKey(), v); break;
+					case "repository": o.repository = oneOf(e.getKey(), v, "journal", "prefs", "prefs-write-behind"); break;
+					case "help": o.help = Boolean.parseBoolean(v); break;
+					default: throw new IllegalArgumentException("Unknown option: --" + e.getKey());
+				}
+			}
+			return o;
+		}
+
+		private static int positive(String name, String value) {
+			int n = notNegative(name, value);
+			if (n == 0) {
+				throw new IllegalArgumentException("--" + name + " must be positive");
+			}
+			return n;
+		}
+
+		private static int percent(String name, String value) {
+			int n = notNegative(name, value);
+			if (n > 100) {
+				throw new IllegalArgumentException("--" + name + " must be from 0 to 100");
+			}
+			return n;
+		}
+
+		private static String oneOf(String name, String value, String... choices) {
+			if (!Arrays.asList(choices).contains(value)) {
+				throw new IllegalArgumentException("--" + name + " must be one of " + String.join(", ", choices) + ", got " + value);
+			}
+			return value;
+		}
+
+		private static int notNegative(String name, String value) {
+			int n;
+			try {
+				n = Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("--" + name + " needs a number, got " + value);
+			}
+			if (n < 0) {
+				throw new IllegalArgumentException("--" + name + " must not be negative");
+			}
+			return n;
+		}
+	}
+}
@@ -8,13 +8,23 @@ import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import javax.swing.table.TableRowSorter;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
  * manually set to "active" and "inactive" to test the system.
+ *
+ * Sensors are shown in a table, which only paints the rows that are scrolled into view, so the
+ * panel stays responsive with thousands of sensors. The table can be sorted by clicking a column
+ * header and filtered by sensor type and active state.
  */
 public class SensorPanel extends JPanel implements StatusListener {
 
+	private static final String ALL_TYPES = "All types";
+	private static final String[] STATES = {"Any state", "Active", "Inactive"};
+
 	private SecurityService securityService;
 
 	private JLabel panelLabel = new JLabel("Sensor Management");
@@ -24,7 +34,14 @@ public class SensorPanel extends JPanel implements StatusListener {
 	private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
 	private JButton addNewSensorButton = new JButton("Add New Sensor");
 
-	private JPanel sensorListPanel;
+	private JComboBox<Object> typeFilter = new JComboBox<>();
+	private JComboBox<String> stateFilter = new JComboBox<>(STATES);
+	private JButton removeSensorButton = new JButton("Remove Selected");
+	private JLabel sensorCountLabel = new JLabel();
+
+	private SensorTableModel sensorTableModel = new SensorTableModel(this::setSensorActivity);
+	private TableRowSorter<SensorTableModel> sensorSorter = new TableRowSorter<>(sensorTableModel);
+	private JTable sensorTable = new JTable(sensorTableModel);
 	private JPanel newSensorPanel;
 
 	public SensorPanel(SecurityService securityService) {
@@ -35,22 +52,25 @@ public class SensorPanel extends JPanel implements StatusListener {
 		 * Using to test in GUI app
 		 * Ref: https://knowledge.udacity.com/questions/1055162
 		 */
-		securityService.addStatusListener(this);
+		securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
 		panelLabel.setFont(StyleService.HEADING_FONT);
 		addNewSensorButton.addActionListener(e ->
 				addSensor(new Sensor(newSensorNameField.getText(),
 						SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
+		removeSensorButton.addActionListener(e -> removeSelectedSensors());
 
 		newSensorPanel = buildAddSensorPanel();
-		sensorListPanel = new JPanel();
-		sensorListPanel.setLayout(new MigLayout());
-
-		updateSensorList(sensorListPanel);
+		buildSensorTable();
+		sensorTableModel.refresh(securityService.getSensors());
 
 		add(panelLabel, "wrap");
-		add(newSensorPanel, "span");
-		add(sensorListPanel, "span");
+		add(newSensorPanel, "span, wrap");
+		add(buildFilterPanel(), "span, wrap");
+		//hard code some sizes, tsk tsk
+		add(new JScrollPane(sensorTable), "span, wrap, width 500:500:500, height 250:250:250");
+		add(removeSensorButton, "split 2");
+		add(sensorCountLabel);
 	}
 
 	/**
@@ -68,60 +88,90 @@ public class SensorPanel extends JPanel implements StatusListener {
 	}
 
 	/**
-	 * Requests the current list of sensors and updates the provided panel to display them. Sensors
-	 * will display in the order that they are created.
-	 * @param p The Panel to populate with the current list of sensors
+	 * Builds the panel with the type and state filters for the sensor table
+	 */
+	private JPanel buildFilterPanel() {
+		typeFilter.addItem(ALL_TYPES);
+		for (SensorType type : SensorType.values()) {
+			typeFilter.addItem(type);
+		}
+		typeFilter.addActionListener(e -> updateFilter());
+		stateFilter.addActionListener(e -> updateFilter());
+
+		JPanel p = new JPanel();
+		p.setLayout(new MigLayout("insets 0"));
+		p.add(new JLabel("Show:"));
+		p.add(typeFilter);
+		p.add(stateFilter);
+		return p;
+	}
+
+	/**
+	 * Sets up sorting, initially by name, and keeps the sensor count in step with what is shown
 	 */
-	private void updateSensorList(JPanel p) {
-		p.removeAll();
-		securityService.getSensors().stream().sorted().forEach(s -> {
-			JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(), s.getSensorType().toString(), (s.getActive() ? "Active" : "Inactive")));
-			JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-			JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-			sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()));
-			sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-			//hard code some sizes, tsk tsk
-			p.add(sensorLabel, "width 300:300:300");
-			p.add(sensorToggleButton, "width 100:100:100");
-			p.add(sensorRemoveButton, "wrap");
+	private void buildSensorTable() {
+		sensorSorter.setSortsOnUpdates(true); //a toggled sensor moves to its place in the current sort
+		sensorSorter.setSortKeys(List.of(new RowSorter.SortKey(SensorTableModel.NAME, SortOrder.ASCENDING)));
+		sensorSorter.addRowSorterListener(e -> updateSensorCount());
+		sensorTable.setRowSorter(sensorSorter);
+		sensorTable.setFillsViewportHeight(true);
+		sensorTable.getColumnModel().getColumn(SensorTableModel.NAME).setPreferredWidth(300);
+	}
+
+	private void updateFilter() {
+		Object type = typeFilter.getSelectedItem();
+		int state = stateFilter.getSelectedIndex();
+		if (type == ALL_TYPES && state == 0) {
+			sensorSorter.setRowFilter(null);
+			return;
+		}
+		sensorSorter.setRowFilter(new RowFilter<SensorTableModel, Integer>() {
+			@Override
+			public boolean include(Entry<? extends SensorTableModel, ? extends Integer> entry) {
+				SensorTableModel model = entry.getModel();
+				int row = entry.getIdentifier();
+				return (type == ALL_TYPES || model.getValueAt(row, SensorTableModel.TYPE) == type)
+						&& (state == 0 || (Boolean) model.getValueAt(row, SensorTableModel.ACTIVE) == (state == 1));
+			}
 		});
+	}
 
-		repaint();
-		revalidate();
+	private void updateSensorCount() {
+		sensorCountLabel.setText(String.format("Showing %d of %d sensors",
+				sensorTable.getRowCount(), sensorTableModel.getRowCount()));
 	}
 
 	/**
-	 * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
+	 * Asks the securityService to change a sensor activation status and then updates that sensor's row
 	 * @param sensor The sensor to update
 	 * @param isActive The sensor's activation status
 	 */
 	private void setSensorActivity(Sensor sensor, Boolean isActive) {
 		securityService.changeSensorActivationStatus(sensor, isActive);
-		updateSensorList(sensorListPanel);
+		sensorTableModel.sensorChanged(sensor);
 	}
 
 	/**
-	 * Adds a sensor to the securityService and then rebuilds the sensor list
+	 * Adds a sensor to the securityService and then adds its row
 	 * @param sensor The sensor to add
 	 */
 	private void addSensor(Sensor sensor) {
-		if (securityService.getSensors().size() < 4) {
-			securityService.addSensor(sensor);
-			updateSensorList(sensorListPanel);
-		} else {
-			JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
-		}
+		securityService.addSensor(sensor);
+		sensorTableModel.sensorChanged(sensor);
 	}
 
 	/**
-	 * Remove a sensor from the securityService and then rebuild the sensor list
-	 * @param sensor The sensor to remove
+	 * Removes the selected sensors from the securityService and then removes their rows
 	 */
-	private void removeSensor(Sensor sensor) {
-		securityService.removeSensor(sensor);
-		updateSensorList(sensorListPanel);
+	private void removeSelectedSensors() {
+		List<Sensor> selected = new ArrayList<>();
+		for (int viewRow : sensorTable.getSelectedRows()) {
+			selected.add(sensorTableModel.getSensor(sensorTable.convertRowIndexToModel(viewRow)));
+		}
+		for (Sensor sensor : selected) {
+			securityService.removeSensor(sensor);
+			sensorTableModel.sensorRemoved(sensor);
+		}
 	}
 
 	@Override
@@ -136,6 +186,6 @@ public class SensorPanel extends JPanel implements StatusListener {
 
 	@Override
 	public void sensorStatusChanged() {
-		updateSensorList(sensorListPanel);
+		sensorTableModel.refresh(securityService.getSensors());
 	}
 }
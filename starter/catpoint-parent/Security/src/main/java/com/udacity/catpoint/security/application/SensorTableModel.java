@@ -0,0 +1,205 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Table model holding one row per sensor. Each row keeps the name, type and active state it last
+ * showed, so a refresh only fires events for the rows that actually changed and the table only
+ * repaints those. Rows stay in the order their sensors were added; sorting and filtering are left to
+ * the table's row sorter.
+ */
+class SensorTableModel extends AbstractTableModel {
+
+	static final int NAME = 0;
+	static final int TYPE = 1;
+	static final int ACTIVE = 2;
+	private static final String[] COLUMNS = {"Name", "Type", "Active"};
+
+	private final List<Row> rows = new ArrayList<>();
+	private final Map<UUID, Integer> rowById = new HashMap<>();
+	private final BiConsumer<Sensor, Boolean> activityChanged;
+
+	/**
+	 * @param activityChanged Called when the user ticks or clears a sensor's active box
+	 */
+	SensorTableModel(BiConsumer<Sensor, Boolean> activityChanged) {
+		this.activityChanged = activityChanged;
+	}
+
+	/**
+	 * Brings the rows in line with the given sensors: adds new sensors, removes missing ones and
+	 * updates the rows whose sensor changed. All updated rows are sent to the table as one event,
+	 * and so are all added rows.
+	 */
+	void refresh(Collection<Sensor> sensors) {
+		Set<UUID> current = new HashSet<>(sensors.size() * 2);
+		for (Sensor sensor : sensors) {
+			current.add(sensor.getSensorId());
+		}
+		int firstRemoved = rows.size();
+		for (int i = rows.size() - 1; i >= 0; i--) {
+			if (current.contains(rows.get(i).sensor.getSensorId())) {
+				continue;
+			}
+			int last = i;
+			while (i > 0 && !current.contains(rows.get(i - 1).sensor.getSensorId())) {
+				i--;
+			}
+			List<Row> removed = rows.subList(i, last + 1);
+			for (Row row : removed) {
+				rowById.remove(row.sensor.getSensorId());
+			}
+			removed.clear();
+			fireTableRowsDeleted(i, last); //one event per run of removed rows, from the end so indexes hold
+			firstRemoved = i;
+		}
+		reindexFrom(firstRemoved);
+
+		int firstAdded = rows.size();
+		int firstChanged = Integer.MAX_VALUE;
+		int lastChanged = -1;
+		for (Sensor sensor : sensors) {
+			Integer index = rowById.get(sensor.getSensorId());
+			if (index == null) {
+				rowById.put(sensor.getSensorId(), rows.size());
+				rows.add(new Row(sensor));
+			} else if (!rows.get(index).matches(sensor)) {
+				rows.set(index, new Row(sensor));
+				firstChanged = Math.min(firstChanged, index);
+				lastChanged = Math.max(lastChanged, index);
+			}
+		}
+		if (lastChanged >= 0) {
+			fireTableRowsUpdated(firstChanged, lastChanged);
+		}
+		if (rows.size() > firstAdded) {
+			fireTableRowsInserted(firstAdded, rows.size() - 1);
+		}
+	}
+
+	/**
+	 * Adds the sensor's row, or updates it if the sensor is already shown.
+	 */
+	void sensorChanged(Sensor sensor) {
+		Integer index = rowById.get(sensor.getSensorId());
+		if (index == null) {
+			rowById.put(sensor.getSensorId(), rows.size());
+			rows.add(new Row(sensor));
+			fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+		} else if (!rows.get(index).matches(sensor)) {
+			rows.set(index, new Row(sensor));
+			fireTableRowsUpdated(index, index);
+		}
+	}
+
+	void sensorRemoved(Sensor sensor) {
+		Integer index = rowById.get(sensor.getSensorId());
+		if (index != null) {
+			rowById.remove(sensor.getSensorId());
+			rows.remove((int) index);
+			reindexFrom(index);
+			fireTableRowsDeleted(index, index);
+		}
+	}
+
+	Sensor getSensor(int row) {
+		return rows.get(row).sensor;
+	}
+
+	@Override
+	public int getRowCount() {
+		return rows.size();
+	}
+
+	@Override
+	public int getColumnCount() {
+		return COLUMNS.length;
+	}
+
+	@Override
+	public String getColumnName(int column) {
+		return COLUMNS[column];
+	}
+
+	@Override
+	public Class<?> getColumnClass(int column) {
+		switch (column) {
+			case TYPE:
+				return SensorType.class;
+			case ACTIVE:
+				return Boolean.class;
+			default:
+				return String.class;
+		}
+	}
+
+	@Override
+	public boolean isCellEditable(int row, int column) {
+		return column == ACTIVE;
+	}
+
+	@Override
+	public Object getValueAt(int row, int column) {
+		Row r = rows.get(row);
+		switch (column) {
+			case TYPE:
+				return r.type;
+			case ACTIVE:
+				return r.active;
+			default:
+				return r.name;
+		}
+	}
+
+	@Override
+	public void setValueAt(Object value, int row, int column) {
+		if (column == ACTIVE) {
+			activityChanged.accept(rows.get(row).sensor, (Boolean) value);
+		}
+	}
+
+	/**
+	 * Updates the index of every row from {@code from} on, after earlier rows were removed. Rows are
+	 * shifted rather than swapped into the gap, so the table's selection stays on the same sensors.
+	 */
+	private void reindexFrom(int from) {
+		for (int i = from; i < rows.size(); i++) {
+			rowById.put(rows.get(i).sensor.getSensorId(), i);
+		}
+	}
+
+	/**
+	 * A sensor and the values its row currently shows.
+	 */
+	private static class Row {
+		private final Sensor sensor;
+		private final String name;
+		private final SensorType type;
+		private final boolean active;
+
+		Row(Sensor sensor) {
+			this.sensor = sensor;
+			this.name = sensor.getName();
+			this.type = sensor.getSensorType();
+			this.active = Boolean.TRUE.equals(sensor.getActive());
+		}
+
+		boolean matches(Sensor sensor) {
+			return active == Boolean.TRUE.equals(sensor.getActive())
+					&& type == sensor.getSensorType() && Objects.equals(name, sensor.getName());
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.udacity.catpoint.security.application;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records when each startup phase ends and prints how long each one took, so it is visible where
+ * the time to the first frame goes. The first phase, "jvm", runs from the start of the JVM to the
+ * creation of the profile. The JVM start time is only looked up when the report is printed, because
+ * loading the management classes would itself slow down startup.
+ */
+class StartupProfile {
+
+	private final long created = System.nanoTime();
+	private final List<String> phases = new ArrayList<>();
+	private final List<Long> ends = new ArrayList<>();
+
+	/**
+	 * Ends a phase at the current time. The phase began when the previous one ended.
+	 */
+	synchronized void mark(String phase) {
+		phases.add(phase);
+		ends.add(System.nanoTime());
+	}
+
+	/**
+	 * Ends the last phase and prints the time each phase took and the total at its end.
+	 */
+	synchronized void report(String phase, PrintStream out) {
+		mark(phase);
+		long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+		long jvmMillis = System.currentTimeMillis() - jvmStart - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - created);
+		out.printf("Startup profile%n  %-20s %6s %8s%n", "phase", "ms", "total");
+		out.printf("  %-20s %6d %8d%n", "jvm", jvmMillis, jvmMillis);
+		long previous = created;
+		for (int i = 0; i < phases.size(); i++) {
+			out.printf("  %-20s %6d %8d%n", phases.get(i),
+					TimeUnit.NANOSECONDS.toMillis(ends.get(i) - previous),
+					jvmMillis + TimeUnit.NANOSECONDS.toMillis(ends.get(i) - created));
+			previous = ends.get(i);
+		}
+	}
+}
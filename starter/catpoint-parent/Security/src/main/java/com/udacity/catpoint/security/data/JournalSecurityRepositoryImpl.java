@@ -0,0 +1,271 @@
+package com.udacity.catpoint.security.data;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository that records every change as a small record appended to a memory-mapped journal
+ * file, so the cost of a write does not depend on how many sensors are installed. Every
+ * {@code snapshotInterval} records the full state is written to a snapshot file and the journal
+ * is reset, so a restart only has to replay the records written since the last snapshot.
+ *
+ * Records are absolute (an upserted sensor, a removed sensor id, a new status), so replaying a
+ * journal on top of a snapshot that already contains some of its records is harmless. Sensors and
+ * statuses are written with {@link SecurityCodec}.
+ */
+public class JournalSecurityRepositoryImpl implements SecurityRepository, Closeable {
+
+	private static final String JOURNAL_FILE = "journal.log";
+	private static final String SNAPSHOT_FILE = "snapshot.bin";
+	private static final int SNAPSHOT_MAGIC = 0x43505353; // "CPSS"
+	private static final int SNAPSHOT_VERSION = 1;
+	private static final int JOURNAL_CHUNK_SIZE = 1 << 20;
+
+	//journal record types
+	private static final byte SENSOR = 1;
+	private static final byte REMOVE_SENSOR = 2;
+	private static final byte ALARM = 3;
+	private static final byte ARMING = 4;
+
+	private final Path journalPath;
+	private final Path snapshotPath;
+	private final int snapshotInterval;
+	private final FileChannel journalChannel;
+	private MappedByteBuffer journal;
+	private int recordsSinceSnapshot;
+
+	private final SensorStore sensors = new SensorStore();
+	//written under the lock, read without it
+	private volatile AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+	private volatile ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+	/**
+	 * Opens (or creates) a journal repository in the given directory.
+	 * @param directory Directory holding the journal and snapshot files
+	 * @param snapshotInterval Number of journal records after which a snapshot is taken
+	 */
+	public JournalSecurityRepositoryImpl(Path directory, int snapshotInterval) {
+		if (snapshotInterval <= 0) {
+			throw new IllegalArgumentException("Snapshot interval must be positive");
+		}
+		this.journalPath = directory.resolve(JOURNAL_FILE);
+		this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+		this.snapshotInterval = snapshotInterval;
+		try {
+			Files.createDirectories(directory);
+			readSnapshot();
+			journalChannel = FileChannel.open(journalPath,
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			long size = Math.max(journalChannel.size(), JOURNAL_CHUNK_SIZE);
+			journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to open security journal in " + directory, e);
+		}
+		replayJournal();
+	}
+
+	@Override
+	public synchronized void addSensor(Sensor sensor) {
+		sensors.put(sensor);
+		append(SENSOR, SecurityCodec.encode(sensor));
+	}
+
+	@Override
+	public synchronized void removeSensor(Sensor sensor) {
+		sensors.remove(sensor.getSensorId());
+		append(REMOVE_SENSOR, uuidRecord(sensor.getSensorId()));
+	}
+
+	@Override
+	public synchronized void updateSensor(Sensor sensor) {
+		sensors.put(sensor);
+		append(SENSOR, SecurityCodec.encode(sensor));
+	}
+
+	/**
+	 * @return New Sensor objects, so callers can iterate and change them while other threads change sensors
+	 */
+	@Override
+	public synchronized Set<Sensor> getSensors() {
+		return sensors.toSensors();
+	}
+
+	@Override
+	public AlarmStatus getAlarmStatus() {
+		return alarmStatus;
+	}
+
+	@Override
+	public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+		this.alarmStatus = alarmStatus;
+		append(ALARM, SecurityCodec.encode(alarmStatus));
+	}
+
+	@Override
+	public ArmingStatus getArmingStatus() {
+		return armingStatus;
+	}
+
+	@Override
+	public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+		this.armingStatus = armingStatus;
+		append(ARMING, SecurityCodec.encode(armingStatus));
+	}
+
+	/**
+	 * Writes a snapshot of the current state and resets the journal.
+	 */
+	public synchronized void compact() {
+		Path tmp = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+		try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			out.write(SecurityCodec.encode(alarmStatus));
+			out.write(SecurityCodec.encode(armingStatus));
+			out.writeInt(sensors.size());
+			for (int slot = 0; slot < sensors.size(); slot++) {
+				out.write(SecurityCodec.encode(sensors.toSensor(slot)));
+			}
+			out.flush();
+			//the snapshot must be on disk before it replaces the old one and the journal is wiped
+			channel.force(true);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write security snapshot", e);
+		}
+		try {
+			Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to replace security snapshot", e);
+		}
+
+		//only clear the records we wrote, the rest of the mapping is still zero
+		int end = journal.position();
+		journal.position(0);
+		for (int i = 0; i < end; i++) {
+			journal.put((byte) 0);
+		}
+		journal.force();
+		journal.position(0);
+		recordsSinceSnapshot = 0;
+	}
+
+	/**
+	 * Forces the journal to disk and releases the underlying file.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		journal.force();
+		journalChannel.close();
+	}
+
+	/**
+	 * Appends a record as [length][type][payload]. A zero length marks the end of the journal, so
+	 * the record is followed by a zero length and its own length is written last: until then the
+	 * record reads as the end of the journal, and whatever a torn record left behind it is never
+	 * read as a record.
+	 */
+	private void append(byte type, byte[] payload) {
+		int size = Integer.BYTES + 1 + payload.length;
+		// keep room for the zero length terminator after this record
+		if (journal.remaining() < size + Integer.BYTES) {
+			grow(journal.position() + size + Integer.BYTES);
+		}
+		int start = journal.position();
+		journal.position(start + Integer.BYTES);
+		journal.put(type);
+		journal.put(payload);
+		journal.putInt(start + size, 0);
+		journal.putInt(start, payload.length + 1);
+		if (++recordsSinceSnapshot >= snapshotInterval) {
+			compact();
+		}
+	}
+
+	private void grow(long minimumSize) {
+		int position = journal.position();
+		long size = journal.capacity();
+		while (size < minimumSize) {
+			size += JOURNAL_CHUNK_SIZE;
+		}
+		try {
+			journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to grow security journal", e);
+		}
+		journal.position(position);
+	}
+
+	private void readSnapshot() throws IOException {
+		if (!Files.exists(snapshotPath)) {
+			return;
+		}
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+		try {
+			if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != SNAPSHOT_VERSION) {
+				throw new IOException("Unrecognized security snapshot " + snapshotPath);
+			}
+			alarmStatus = SecurityCodec.decodeAlarmStatus(in);
+			armingStatus = SecurityCodec.decodeArmingStatus(in);
+			int count = in.getInt();
+			for (int i = 0; i < count; i++) {
+				SecurityCodec.decodeSensor(in, sensors);
+			}
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Corrupt security snapshot " + snapshotPath, e);
+		}
+	}
+
+	/**
+	 * Applies every complete record in the journal and leaves the buffer positioned after the last one.
+	 * A partially written record at the tail (from a crash mid-append) or a record of a type this
+	 * version does not know is taken as the end of the journal, and is overwritten by the next append.
+	 */
+	private void replayJournal() {
+		while (journal.remaining() >= Integer.BYTES) {
+			int start = journal.position();
+			int length = journal.getInt();
+			if (length <= 0 || length > journal.remaining()) {
+				journal.position(start);
+				break;
+			}
+			byte type = journal.get();
+			try {
+				switch (type) {
+					case SENSOR -> SecurityCodec.decodeSensor(journal, sensors);
+					case REMOVE_SENSOR -> sensors.remove(journal.getLong(), journal.getLong());
+					case ALARM -> alarmStatus = SecurityCodec.decodeAlarmStatus(journal);
+					case ARMING -> armingStatus = SecurityCodec.decodeArmingStatus(journal);
+					default -> throw new IllegalArgumentException("Unknown journal record type " + type);
+				}
+			} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+				journal.position(start);
+				break;
+			}
+			journal.position(start + Integer.BYTES + length);
+			recordsSinceSnapshot++;
+		}
+	}
+
+	private static byte[] uuidRecord(UUID id) {
+		return ByteBuffer.allocate(2 * Long.BYTES)
+				.putLong(id.getMostSignificantBits())
+				.putLong(id.getLeastSignificantBits())
+				.array();
+	}
+}
@@ -4,87 +4,330 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * Each sensor is stored as its own {@link SecurityCodec} record in a child node keyed by sensor id,
+ * so a change to one sensor only rewrites that sensor, and the statuses are stored the same way.
+ * Nothing is read from preferences until it is needed: the backing store is opened on first use,
+ * the statuses on their first read and the sensors on theirs. Values in the older JSON and string
+ * formats are converted to records when they are first read.
+ *
+ * By default every change is written straight through to preferences. In write-behind mode
+ * changes only mark the state dirty and a background flusher writes one coalesced snapshot
+ * per interval, or sooner once the number of pending changes reaches the threshold.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository {
 
 	//preference keys
-	private static final String SENSORS = "SENSORS";
-	private static final String ALARM_STATUS = "ALARM_STATUS";
-	private static final String ARMING_STATUS = "ARMING_STATUS";
-	private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-	private static final Gson gson = new Gson(); //used to serialize objects into JSON
-	private Set<Sensor> sensors;
-	private AlarmStatus alarmStatus;
+	private static final String SENSOR_NODE = "sensor-records";
+	private static final String ALARM_STATUS = "ALARM";
+	private static final String ARMING_STATUS = "ARMING";
+	//keys written by older versions
+	private static final String LEGACY_SENSORS = "SENSORS";
+	private static final String LEGACY_ALARM_STATUS = "ALARM_STATUS";
+	private static final String LEGACY_ARMING_STATUS = "ARMING_STATUS";
+	private SensorStore sensors; //null until first access
+	private AlarmStatus alarmStatus; //null until first access or change
 	private ArmingStatus armingStatus;
 
+	//write-behind state, all guarded by this
+	private final boolean writeBehind;
+	private final int flushThreshold;
+	private ScheduledExecutorService flusher;
+	private Thread shutdownHook;
+	private final Set<UUID> dirtySensorIds = new HashSet<>();
+	private boolean alarmStatusDirty;
+	private boolean armingStatusDirty;
+	private int pendingChanges;
+	private boolean earlyFlushQueued;
+
 	public PretendDatabaseSecurityRepositoryImpl() {
-		//load system state from prefs, or else default
-		alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
-		armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
-
-		//we've serialized our sensor objects for storage, which should be a good warning sign that
-		// this is likely an impractical solution for a real system
-		String sensorString = prefs.get(SENSORS, null);
-		if (sensorString == null) {
-			sensors = new TreeSet<>();
-		} else {
-			Type type = new TypeToken<Set<Sensor>>() {
-			}.getType();
-			sensors = gson.fromJson(sensorString, type);
+		this(false, 0, 0);
+	}
+
+	/**
+	 * Creates a repository in write-behind mode.
+	 * @param flushIntervalMillis How often the background flusher writes pending changes
+	 * @param flushThreshold Number of pending changes that triggers an early flush
+	 */
+	public PretendDatabaseSecurityRepositoryImpl(long flushIntervalMillis, int flushThreshold) {
+		this(true, flushIntervalMillis, flushThreshold);
+	}
+
+	private PretendDatabaseSecurityRepositoryImpl(boolean writeBehind, long flushIntervalMillis, int flushThreshold) {
+		if (writeBehind && (flushIntervalMillis <= 0 || flushThreshold <= 0)) {
+			throw new IllegalArgumentException("Flush interval and threshold must be positive");
+		}
+
+		this.writeBehind = writeBehind;
+		this.flushThreshold = flushThreshold;
+		if (writeBehind) {
+			flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "catpoint-prefs-flusher");
+				t.setDaemon(true);
+				return t;
+			});
+			flusher.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+			shutdownHook = new Thread(this::flush, "catpoint-prefs-shutdown");
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
 		}
 	}
 
 	@Override
-	public void addSensor(Sensor sensor) {
-		sensors.add(sensor);
-		prefs.put(SENSORS, gson.toJson(sensors));
+	public synchronized void addSensor(Sensor sensor) {
+		loadSensors();
+		sensors.put(sensor);
+		sensorChanged(sensor.getSensorId());
 	}
 
 	@Override
-	public void removeSensor(Sensor sensor) {
-		sensors.remove(sensor);
-		prefs.put(SENSORS, gson.toJson(sensors));
+	public synchronized void removeSensor(Sensor sensor) {
+		loadSensors();
+		sensors.remove(sensor.getSensorId());
+		sensorChanged(sensor.getSensorId());
 	}
 
 	@Override
-	public void updateSensor(Sensor sensor) {
-		sensors.remove(sensor);
-		sensors.add(sensor);
-		prefs.put(SENSORS, gson.toJson(sensors));
+	public synchronized void updateSensor(Sensor sensor) {
+		loadSensors();
+		sensors.put(sensor);
+		sensorChanged(sensor.getSensorId());
 	}
 
 	@Override
-	public Set<Sensor> getSensors() {
-		return sensors;
+	public synchronized void updateSensors(Collection<Sensor> changed) {
+		loadSensors();
+		for (Sensor sensor : changed) {
+			sensors.put(sensor);
+			if (writeBehind) {
+				dirtySensorIds.add(sensor.getSensorId());
+			} else {
+				writeSensor(sensor.getSensorId());
+			}
+		}
+		if (writeBehind && !changed.isEmpty()) {
+			changePending();
+		}
 	}
 
 	@Override
-	public AlarmStatus getAlarmStatus() {
+	public synchronized Set<Sensor> getSensors() {
+		loadSensors();
+		return sensors.toSensors(); //new objects, so callers can iterate while other threads change sensors
+	}
+
+	@Override
+	public synchronized AlarmStatus getAlarmStatus() {
+		if (alarmStatus == null) {
+			byte[] stored = Store.prefs.getByteArray(ALARM_STATUS, null);
+			String legacy = stored == null ? Store.prefs.get(LEGACY_ALARM_STATUS, null) : null;
+			if (stored != null) {
+				alarmStatus = SecurityCodec.decodeAlarmStatus(stored);
+			} else if (legacy != null) {
+				alarmStatus = AlarmStatus.valueOf(legacy);
+				writeAlarmStatus(); //converts the legacy key
+			} else {
+				alarmStatus = AlarmStatus.NO_ALARM;
+			}
+		}
 		return alarmStatus;
 	}
 
 	@Override
-	public void setAlarmStatus(AlarmStatus alarmStatus) {
+	public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
 		this.alarmStatus = alarmStatus;
-		prefs.put(ALARM_STATUS, this.alarmStatus.toString());
+		if (writeBehind) {
+			alarmStatusDirty = true;
+			changePending();
+		} else {
+			writeAlarmStatus();
+		}
 	}
 
 	@Override
-	public ArmingStatus getArmingStatus() {
+	public synchronized ArmingStatus getArmingStatus() {
+		if (armingStatus == null) {
+			byte[] stored = Store.prefs.getByteArray(ARMING_STATUS, null);
+			String legacy = stored == null ? Store.prefs.get(LEGACY_ARMING_STATUS, null) : null;
+			if (stored != null) {
+				armingStatus = SecurityCodec.decodeArmingStatus(stored);
+			} else if (legacy != null) {
+				armingStatus = ArmingStatus.valueOf(legacy);
+				writeArmingStatus(); //converts the legacy key
+			} else {
+				armingStatus = ArmingStatus.DISARMED;
+			}
+		}
 		return armingStatus;
 	}
 
 	@Override
-	public void setArmingStatus(ArmingStatus armingStatus) {
+	public synchronized void setArmingStatus(ArmingStatus armingStatus) {
 		this.armingStatus = armingStatus;
-		prefs.put(ARMING_STATUS, this.armingStatus.toString());
+		if (writeBehind) {
+			armingStatusDirty = true;
+			changePending();
+		} else {
+			writeArmingStatus();
+		}
+	}
+
+	/**
+	 * Writes any pending changes to preferences and syncs them to the backing store.
+	 * Does nothing if there are no pending changes. If the sync fails the changes stay pending,
+	 * so the next flush writes them again.
+	 */
+	public synchronized void flush() {
+		earlyFlushQueued = false; //cleared even if this flush fails, so the next change past the threshold retries
+		if (pendingChanges == 0) {
+			return;
+		}
+		dirtySensorIds.forEach(this::writeSensor);
+		if (alarmStatusDirty) {
+			writeAlarmStatus();
+		}
+		if (armingStatusDirty) {
+			writeArmingStatus();
+		}
+		try {
+			Store.prefs.flush();
+		} catch (BackingStoreException e) {
+			throw new IllegalStateException("Unable to flush security state to preferences", e);
+		}
+		dirtySensorIds.clear();
+		alarmStatusDirty = false;
+		armingStatusDirty = false;
+		pendingChanges = 0;
+	}
+
+	/**
+	 * Stops the background flusher and writes any pending changes. The repository can still be
+	 * read afterwards, but further changes are only persisted by an explicit {@link #flush()}.
+	 */
+	public void shutdown() {
+		if (flusher != null) {
+			flusher.shutdown();
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				//the JVM is already shutting down and the hook is running or has run
+			}
+		}
+		flush();
+	}
+
+	/**
+	 * Flushes on the flusher thread. A failure is reported to the thread's uncaught exception
+	 * handler rather than thrown, which would cancel the schedule; the changes stay pending and
+	 * the next run retries them.
+	 */
+	private void flushInBackground() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			Thread current = Thread.currentThread();
+			current.getUncaughtExceptionHandler().uncaughtException(current, e);
+		}
+	}
+
+	/**
+	 * Reads all sensors from their per-sensor keys the first time they are needed, converting
+	 * sensors stored as JSON by older versions first.
+	 */
+	private void loadSensors() {
+		if (sensors != null) {
+			return;
+		}
+		sensors = new SensorStore();
+		Preferences sensorNode = Store.prefs.node(SENSOR_NODE);
+		try {
+			migrateJsonSensors(sensorNode);
+			for (String key : sensorNode.keys()) {
+				byte[] record = sensorNode.getByteArray(key, null);
+				if (record != null) {
+					SecurityCodec.decodeSensor(ByteBuffer.wrap(record), sensors);
+				}
+			}
+		} catch (BackingStoreException e) {
+			throw new IllegalStateException("Unable to read sensors from preferences", e);
+		}
+	}
+
+	/**
+	 * Converts sensors that older versions wrote as JSON, every sensor in one value, which rewrote
+	 * them all on each change and ran into the preferences value size limit. Gson is only loaded if
+	 * there is something to convert.
+	 */
+	private static void migrateJsonSensors(Preferences sensorNode) {
+		String legacySensors = Store.prefs.get(LEGACY_SENSORS, null);
+		if (legacySensors == null) {
+			return;
+		}
+		Type type = new TypeToken<Set<Sensor>>() {
+		}.getType();
+		Set<Sensor> migrated = new Gson().fromJson(legacySensors, type);
+		migrated.forEach(s -> sensorNode.putByteArray(s.getSensorId().toString(), SecurityCodec.encode(s)));
+		Store.prefs.remove(LEGACY_SENSORS);
+	}
+
+	private void writeSensor(UUID sensorId) {
+		int slot = sensors.slotOf(sensorId);
+		if (slot < 0) {
+			Store.prefs.node(SENSOR_NODE).remove(sensorId.toString());
+		} else {
+			Store.prefs.node(SENSOR_NODE).putByteArray(sensorId.toString(), SecurityCodec.encode(sensors.toSensor(slot)));
+		}
+	}
+
+	private void writeAlarmStatus() {
+		Store.prefs.putByteArray(ALARM_STATUS, SecurityCodec.encode(alarmStatus));
+		Store.prefs.remove(LEGACY_ALARM_STATUS);
+	}
+
+	private void writeArmingStatus() {
+		Store.prefs.putByteArray(ARMING_STATUS, SecurityCodec.encode(armingStatus));
+		Store.prefs.remove(LEGACY_ARMING_STATUS);
+	}
+
+	private void sensorChanged(UUID sensorId) {
+		if (writeBehind) {
+			dirtySensorIds.add(sensorId);
+			changePending();
+		} else {
+			writeSensor(sensorId);
+		}
+	}
+
+	/**
+	 * Counts a change and queues an early flush once the threshold is reached. The count is only reset by a
+	 * flush that succeeds, so after a failed one every further change queues another, one at a time.
+	 */
+	private void changePending() {
+		pendingChanges++;
+		if (pendingChanges >= flushThreshold && !earlyFlushQueued && flusher != null && !flusher.isShutdown()) {
+			earlyFlushQueued = true;
+			flusher.execute(this::flushInBackground);
+		}
+	}
+
+	/**
+	 * Holds the preferences node, so the backing store is only opened once state is first read or written.
+	 */
+	private static class Store {
+		static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
 	}
 }
@@ -0,0 +1,286 @@
+package com.udacity.catpoint.security.data;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of sensors and statuses, for any repository that stores bytes.
+ *
+ * Every value starts with a version byte and the length of the body that follows, as an unsigned
+ * varint. Later versions may only add fields at the end of the body, so a reader skips whatever it
+ * does not know and can read values written by newer versions. Version 1 bodies are:
+ * <pre>
+ * Sensor:        [id high: 8][id low: 8][type: 1][flags: 1][name length: varint][name: UTF-8]
+ *                [zone length: varint][zone: UTF-8]
+ *                flags bit 0 = active, bit 1 = has name, bit 2 = has zone; a length and string are
+ *                left out without their flag, and a sensor without a zone is in the default zone
+ * AlarmStatus:   [code: 1]
+ * ArmingStatus:  [code: 1]
+ * </pre>
+ * Type and status codes are fixed below rather than taken from the enum ordinals, so reordering an
+ * enum does not change what stored bytes mean. New constants get new codes; a reader that meets a
+ * code it does not know rejects the value rather than guessing. A missing sensor type is written as 0xFF.
+ */
+public final class SecurityCodec {
+
+	public static final int VERSION = 1;
+
+	private static final SensorType[] SENSOR_TYPES = {SensorType.DOOR, SensorType.WINDOW, SensorType.MOTION};
+	private static final AlarmStatus[] ALARM_STATUSES = {AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM};
+	private static final ArmingStatus[] ARMING_STATUSES = {ArmingStatus.DISARMED, ArmingStatus.ARMED_HOME, ArmingStatus.ARMED_AWAY};
+	private static final int NO_TYPE = 0xFF;
+	private static final int ACTIVE = 1;
+	private static final int HAS_NAME = 2;
+	private static final int HAS_ZONE = 4;
+
+	private SecurityCodec() {
+	}
+
+	public static byte[] encode(Sensor sensor) {
+		byte[] name = nameBytes(sensor);
+		byte[] zone = zoneBytes(sensor);
+		ByteBuffer out = ByteBuffer.allocate(encodedSize(name, zone));
+		write(sensor, name, zone, out);
+		return out.array();
+	}
+
+	/**
+	 * Writes the sensor at the buffer's position.
+	 * @throws java.nio.BufferOverflowException If the buffer has less room than {@link #encodedSize(Sensor)}
+	 */
+	public static void encode(Sensor sensor, ByteBuffer out) {
+		write(sensor, nameBytes(sensor), zoneBytes(sensor), out);
+	}
+
+	/**
+	 * @return Number of bytes {@link #encode(Sensor)} produces for this sensor
+	 */
+	public static int encodedSize(Sensor sensor) {
+		return encodedSize(nameBytes(sensor), zoneBytes(sensor));
+	}
+
+	public static Sensor decodeSensor(byte[] bytes) {
+		return decodeSensor(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Reads one sensor and leaves the buffer positioned after it.
+	 * @throws IllegalArgumentException If the bytes are not a sensor this codec can read
+	 */
+	public static Sensor decodeSensor(ByteBuffer in) {
+		Sensor sensor = new Sensor();
+		readSensor(in, sensor, null);
+		return sensor;
+	}
+
+	/**
+	 * Reads one sensor straight into the store, without creating a Sensor, and leaves the buffer
+	 * positioned after it.
+	 * @return The sensor's slot in the store
+	 * @throws IllegalArgumentException If the bytes are not a sensor this codec can read
+	 */
+	public static int decodeSensor(ByteBuffer in, SensorStore into) {
+		return readSensor(in, null, into);
+	}
+
+	public static byte[] encode(AlarmStatus status) {
+		return encodeCode(indexOf(ALARM_STATUSES, status));
+	}
+
+	public static AlarmStatus decodeAlarmStatus(byte[] bytes) {
+		return decodeAlarmStatus(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Reads one alarm status and leaves the buffer positioned after it.
+	 * @throws IllegalArgumentException If the bytes are not an alarm status this codec can read
+	 */
+	public static AlarmStatus decodeAlarmStatus(ByteBuffer in) {
+		return ALARM_STATUSES[decodeCode(in, ALARM_STATUSES.length, "alarm status")];
+	}
+
+	public static byte[] encode(ArmingStatus status) {
+		return encodeCode(indexOf(ARMING_STATUSES, status));
+	}
+
+	public static ArmingStatus decodeArmingStatus(byte[] bytes) {
+		return decodeArmingStatus(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Reads one arming status and leaves the buffer positioned after it.
+	 * @throws IllegalArgumentException If the bytes are not an arming status this codec can read
+	 */
+	public static ArmingStatus decodeArmingStatus(ByteBuffer in) {
+		return ARMING_STATUSES[decodeCode(in, ARMING_STATUSES.length, "arming status")];
+	}
+
+	private static byte[] nameBytes(Sensor sensor) {
+		return sensor.getName() == null ? null : sensor.getName().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return The zone's bytes, or null for the default zone, which is not written
+	 */
+	private static byte[] zoneBytes(Sensor sensor) {
+		String zone = sensor.getZone();
+		return Sensor.DEFAULT_ZONE.equals(zone) ? null : zone.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int encodedSize(byte[] name, byte[] zone) {
+		int body = bodySize(name, zone);
+		return 1 + varintSize(body) + body;
+	}
+
+	private static int bodySize(byte[] name, byte[] zone) {
+		return 2 * Long.BYTES + 2 + stringSize(name) + stringSize(zone);
+	}
+
+	private static int stringSize(byte[] bytes) {
+		return bytes == null ? 0 : varintSize(bytes.length) + bytes.length;
+	}
+
+	private static void write(Sensor sensor, byte[] name, byte[] zone, ByteBuffer out) {
+		out.put((byte) VERSION);
+		putVarint(out, bodySize(name, zone));
+		UUID id = sensor.getSensorId();
+		out.putLong(id.getMostSignificantBits());
+		out.putLong(id.getLeastSignificantBits());
+		out.put((byte) (sensor.getSensorType() == null ? NO_TYPE : indexOf(SENSOR_TYPES, sensor.getSensorType())));
+		out.put((byte) ((Boolean.TRUE.equals(sensor.getActive()) ? ACTIVE : 0) | (name == null ? 0 : HAS_NAME)
+				| (zone == null ? 0 : HAS_ZONE)));
+		if (name != null) {
+			putVarint(out, name.length);
+			out.put(name);
+		}
+		if (zone != null) {
+			putVarint(out, zone.length);
+			out.put(zone);
+		}
+	}
+
+	/**
+	 * Reads a sensor into whichever of sensor and store is not null.
+	 */
+	private static int readSensor(ByteBuffer in, Sensor sensor, SensorStore store) {
+		try {
+			int end = readHeader(in);
+			long high = in.getLong();
+			long low = in.getLong();
+			int typeCode = in.get() & 0xFF;
+			int flags = in.get();
+			String name = (flags & HAS_NAME) != 0 ? getString(in, end, "name") : null;
+			String zone = (flags & HAS_ZONE) != 0 ? getString(in, end, "zone") : null;
+			if (in.position() > end) {
+				throw new IllegalArgumentException("Sensor fields run past the record length");
+			}
+			in.position(end); //skip fields added by newer versions
+			SensorType type = typeCode == NO_TYPE ? null : code(SENSOR_TYPES, typeCode, "sensor type");
+			boolean active = (flags & ACTIVE) != 0;
+			if (store != null) {
+				return store.put(high, low, name, zone, type, active);
+			}
+			sensor.setSensorId(new UUID(high, low));
+			sensor.setSensorType(type);
+			sensor.setActive(active);
+			sensor.setName(name);
+			sensor.setZone(zone);
+			return -1;
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated sensor record", e);
+		}
+	}
+
+	private static String getString(ByteBuffer in, int end, String what) {
+		int length = getVarint(in);
+		if (length < 0 || length > end - in.position()) {
+			throw new IllegalArgumentException("Sensor " + what + " runs past the record length");
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the version and body length.
+	 * @return The buffer position at which the body ends
+	 */
+	private static int readHeader(ByteBuffer in) {
+		int version = in.get() & 0xFF;
+		if (version == 0) {
+			throw new IllegalArgumentException("Not a versioned record");
+		}
+		int length = getVarint(in);
+		if (length < 0 || length > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		return in.position() + length;
+	}
+
+	private static byte[] encodeCode(int code) {
+		return new byte[]{(byte) VERSION, 1, (byte) code};
+	}
+
+	private static int decodeCode(ByteBuffer in, int codes, String what) {
+		try {
+			int end = readHeader(in);
+			if (end == in.position()) {
+				throw new IllegalArgumentException("Empty " + what + " record");
+			}
+			int code = in.get() & 0xFF;
+			in.position(end);
+			if (code >= codes) {
+				throw new IllegalArgumentException("Unknown " + what + " code " + code);
+			}
+			return code;
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated " + what + " record", e);
+		}
+	}
+
+	private static <T> int indexOf(T[] codes, T value) {
+		for (int i = 0; i < codes.length; i++) {
+			if (codes[i] == value) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("No code for " + value);
+	}
+
+	private static <T> T code(T[] codes, int code, String what) {
+		if (code >= codes.length) {
+			throw new IllegalArgumentException("Unknown " + what + " code " + code);
+		}
+		return codes[code];
+	}
+
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	private static void putVarint(ByteBuffer out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	private static int getVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed length");
+	}
+}
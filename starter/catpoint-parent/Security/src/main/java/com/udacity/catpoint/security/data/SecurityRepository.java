@@ -1,5 +1,6 @@
 package com.udacity.catpoint.security.data;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -12,6 +13,14 @@ public interface SecurityRepository {
 
 	void updateSensor(Sensor sensor);
 
+	/**
+	 * Persist changes to several sensors at once. Implementations can override this to
+	 * avoid paying the per-update cost for every sensor.
+	 */
+	default void updateSensors(Collection<Sensor> sensors) {
+		sensors.forEach(this::updateSensor);
+	}
+
 	Set<Sensor> getSensors();
 
 	AlarmStatus getAlarmStatus();
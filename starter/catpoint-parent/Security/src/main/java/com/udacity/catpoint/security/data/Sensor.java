@@ -8,12 +8,18 @@ import java.util.UUID;
 
 /**
  * Sensor POJO. Needs to know how to sort itself for display purposes.
+ *
+ * Every sensor belongs to a zone, such as a floor or a wing of the building. Sensors that were never
+ * given one belong to {@link #DEFAULT_ZONE}.
  */
 public class Sensor implements Comparable<Sensor> {
+	public static final String DEFAULT_ZONE = "House";
+
 	private UUID sensorId;
 	private String name;
 	private Boolean active;
 	private SensorType sensorType;
+	private String zone;
 
 	/**
 	 * Ref: <a href="https://knowledge.udacity.com/questions/989076">Register sensor</a>.
@@ -28,6 +34,11 @@ public class Sensor implements Comparable<Sensor> {
 		this.active = Boolean.FALSE;
 	}
 
+	public Sensor(String name, SensorType sensorType, String zone) {
+		this(name, sensorType);
+		this.zone = zone;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -65,6 +76,20 @@ public class Sensor implements Comparable<Sensor> {
 		this.sensorType = sensorType;
 	}
 
+	/**
+	 * @return The sensor's zone, never null
+	 */
+	public String getZone() {
+		return zone == null ? DEFAULT_ZONE : zone;
+	}
+
+	/**
+	 * @param zone The zone, or null for {@link #DEFAULT_ZONE}
+	 */
+	public void setZone(String zone) {
+		this.zone = zone;
+	}
+
 	public UUID getSensorId() {
 		return sensorId;
 	}
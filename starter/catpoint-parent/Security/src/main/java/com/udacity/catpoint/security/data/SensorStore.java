@@ -0,0 +1,400 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Compact in-memory sensor table for repositories. Sensors sit in dense slots 0 to size - 1, and
+ * every field has its own array: the id as two longs, the type as a byte ordinal, the name and zone
+ * as indexes into a table of interned strings and the active flag as a bit in a {@link BitSet}. Ids are
+ * found through an open-addressing index that stores slot numbers only.
+ *
+ * Looking up, toggling and counting sensors never allocates, and walking the active sensors with
+ * {@link #nextActive(int)} only reads the bit set, so the store scales to millions of sensors without
+ * creating an object per sensor. {@link Sensor} objects are only created when asked for.
+ *
+ * Removing a sensor moves the sensor in the last slot into the gap, so a slot number is only valid
+ * until the next removal. Not thread-safe; callers synchronize.
+ */
+public class SensorStore {
+
+	private static final SensorType[] TYPES = SensorType.values();
+	private static final byte NO_TYPE = -1;
+	private static final int NO_NAME = -1;
+
+	//per slot
+	private long[] idHigh;
+	private long[] idLow;
+	private byte[] types;
+	private int[] nameIds;
+	private int[] zoneIds; //NO_NAME for the default zone
+	private final BitSet active = new BitSet();
+	private int size;
+
+	//index from id to slot + 1, 0 marks a free entry
+	private int[] index;
+
+	//interned names and zones, reference counted so removed strings can be reused
+	private String[] names = new String[16];
+	private int[] nameRefs = new int[16];
+	private final Map<String, Integer> nameIdByName = new HashMap<>();
+	private int[] freeNameIds = new int[16];
+	private int freeNameCount;
+	private int nameCount;
+
+	private final int[] activeByType = new int[TYPES.length];
+	private int activeTotal;
+
+	public SensorStore() {
+		this(16);
+	}
+
+	/**
+	 * @param initialCapacity Number of sensors the store can hold before it grows
+	 */
+	public SensorStore(int initialCapacity) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException("Initial capacity must be positive");
+		}
+		idHigh = new long[initialCapacity];
+		idLow = new long[initialCapacity];
+		types = new byte[initialCapacity];
+		nameIds = new int[initialCapacity];
+		zoneIds = new int[initialCapacity];
+		index = new int[Integer.highestOneBit(initialCapacity * 2 - 1) << 1];
+	}
+
+	/**
+	 * Adds the sensor, or overwrites the stored fields if a sensor with its id is already present.
+	 * @return The sensor's slot
+	 */
+	public int put(Sensor sensor) {
+		UUID id = sensor.getSensorId();
+		return put(id.getMostSignificantBits(), id.getLeastSignificantBits(), sensor.getName(), sensor.getZone(),
+				sensor.getSensorType(), Boolean.TRUE.equals(sensor.getActive()));
+	}
+
+	/**
+	 * Adds a sensor from its fields, or overwrites them if a sensor with this id is already present.
+	 * @param zone The zone, or null for {@link Sensor#DEFAULT_ZONE}
+	 * @return The sensor's slot
+	 */
+	public int put(long high, long low, String name, String zone, SensorType type, boolean isActive) {
+		if (Sensor.DEFAULT_ZONE.equals(zone)) {
+			zone = null;
+		}
+		int slot = slotOf(high, low);
+		if (slot < 0) {
+			if (size == idHigh.length) {
+				grow();
+			}
+			slot = size++;
+			idHigh[slot] = high;
+			idLow[slot] = low;
+			types[slot] = NO_TYPE;
+			nameIds[slot] = intern(name);
+			zoneIds[slot] = intern(zone);
+			insertIndex(slot);
+		} else {
+			if (!nameEquals(nameIds[slot], name)) {
+				release(nameIds[slot]);
+				nameIds[slot] = intern(name);
+			}
+			if (!nameEquals(zoneIds[slot], zone)) {
+				release(zoneIds[slot]);
+				zoneIds[slot] = intern(zone);
+			}
+		}
+		setType(slot, type);
+		setActive(slot, isActive);
+		return slot;
+	}
+
+	/**
+	 * @return True if the sensor was present
+	 */
+	public boolean remove(UUID sensorId) {
+		return remove(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+	}
+
+	/**
+	 * @return True if the sensor was present
+	 */
+	public boolean remove(long high, long low) {
+		int entry = findEntry(high, low);
+		if (index[entry] == 0) {
+			return false;
+		}
+		int slot = index[entry] - 1;
+		deleteEntry(entry);
+		setActive(slot, false);
+		release(nameIds[slot]);
+		release(zoneIds[slot]);
+
+		int last = --size;
+		if (slot != last) {
+			idHigh[slot] = idHigh[last];
+			idLow[slot] = idLow[last];
+			types[slot] = types[last];
+			nameIds[slot] = nameIds[last];
+			zoneIds[slot] = zoneIds[last];
+			active.set(slot, active.get(last));
+			active.clear(last);
+			index[findEntry(idHigh[slot], idLow[slot])] = slot + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * @return The sensor's slot, or -1 if it is not in the store
+	 */
+	public int slotOf(UUID sensorId) {
+		return slotOf(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+	}
+
+	/**
+	 * @return The slot of the sensor with this id, or -1 if it is not in the store
+	 */
+	public int slotOf(long high, long low) {
+		return index[findEntry(high, low)] - 1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isActive(int slot) {
+		checkSlot(slot);
+		return active.get(slot);
+	}
+
+	/**
+	 * @return The previous active state
+	 */
+	public boolean setActive(int slot, boolean isActive) {
+		checkSlot(slot);
+		boolean was = active.get(slot);
+		if (was != isActive) {
+			active.set(slot, isActive);
+			int delta = isActive ? 1 : -1;
+			activeTotal += delta;
+			if (types[slot] != NO_TYPE) {
+				activeByType[types[slot]] += delta;
+			}
+		}
+		return was;
+	}
+
+	public SensorType getSensorType(int slot) {
+		checkSlot(slot);
+		return types[slot] == NO_TYPE ? null : TYPES[types[slot]];
+	}
+
+	public String getName(int slot) {
+		checkSlot(slot);
+		return nameIds[slot] == NO_NAME ? null : names[nameIds[slot]];
+	}
+
+	/**
+	 * @return The sensor's zone, never null
+	 */
+	public String getZone(int slot) {
+		checkSlot(slot);
+		return zoneIds[slot] == NO_NAME ? Sensor.DEFAULT_ZONE : names[zoneIds[slot]];
+	}
+
+	public long getSensorIdHigh(int slot) {
+		checkSlot(slot);
+		return idHigh[slot];
+	}
+
+	public long getSensorIdLow(int slot) {
+		checkSlot(slot);
+		return idLow[slot];
+	}
+
+	/**
+	 * Allocates a UUID; use {@link #getSensorIdHigh(int)} and {@link #getSensorIdLow(int)} in hot loops.
+	 */
+	public UUID getSensorId(int slot) {
+		checkSlot(slot);
+		return new UUID(idHigh[slot], idLow[slot]);
+	}
+
+	public int getActiveCount() {
+		return activeTotal;
+	}
+
+	public int getActiveCount(SensorType type) {
+		return activeByType[type.ordinal()];
+	}
+
+	/**
+	 * Walks the active sensors without allocating:
+	 * {@code for (int s = store.nextActive(0); s >= 0; s = store.nextActive(s + 1))}
+	 * @return The first active slot at or after the given one, or -1 if there is none
+	 */
+	public int nextActive(int fromSlot) {
+		int slot = active.nextSetBit(fromSlot);
+		return slot < size ? slot : -1;
+	}
+
+	/**
+	 * @return A new Sensor with the slot's fields
+	 */
+	public Sensor toSensor(int slot) {
+		Sensor sensor = new Sensor();
+		sensor.setSensorId(getSensorId(slot));
+		sensor.setName(getName(slot));
+		sensor.setZone(zoneIds[slot] == NO_NAME ? null : names[zoneIds[slot]]);
+		sensor.setSensorType(getSensorType(slot));
+		sensor.setActive(active.get(slot));
+		return sensor;
+	}
+
+	/**
+	 * @return New Sensor objects for every slot, in display order
+	 */
+	public Set<Sensor> toSensors() {
+		Set<Sensor> sensors = new TreeSet<>();
+		for (int slot = 0; slot < size; slot++) {
+			sensors.add(toSensor(slot));
+		}
+		return sensors;
+	}
+
+	private void setType(int slot, SensorType type) {
+		byte ordinal = type == null ? NO_TYPE : (byte) type.ordinal();
+		if (types[slot] == ordinal) {
+			return;
+		}
+		if (active.get(slot)) {
+			if (types[slot] != NO_TYPE) {
+				activeByType[types[slot]]--;
+			}
+			if (ordinal != NO_TYPE) {
+				activeByType[ordinal]++;
+			}
+		}
+		types[slot] = ordinal;
+	}
+
+	private void checkSlot(int slot) {
+		if (slot < 0 || slot >= size) {
+			throw new IndexOutOfBoundsException("No sensor in slot " + slot);
+		}
+	}
+
+	private void grow() {
+		int capacity = idHigh.length * 2;
+		idHigh = Arrays.copyOf(idHigh, capacity);
+		idLow = Arrays.copyOf(idLow, capacity);
+		types = Arrays.copyOf(types, capacity);
+		nameIds = Arrays.copyOf(nameIds, capacity);
+		zoneIds = Arrays.copyOf(zoneIds, capacity);
+		if (capacity * 2 > index.length) {
+			index = new int[index.length * 2];
+			for (int slot = 0; slot < size; slot++) {
+				insertIndex(slot);
+			}
+		}
+	}
+
+	//index, linear probing with at most half the entries in use
+
+	private static int hash(long high, long low) {
+		long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * @return The entry holding this id, or the free entry where it would go
+	 */
+	private int findEntry(long high, long low) {
+		int mask = index.length - 1;
+		int entry = hash(high, low) & mask;
+		while (index[entry] != 0) {
+			int slot = index[entry] - 1;
+			if (idHigh[slot] == high && idLow[slot] == low) {
+				return entry;
+			}
+			entry = (entry + 1) & mask;
+		}
+		return entry;
+	}
+
+	private void insertIndex(int slot) {
+		index[findEntry(idHigh[slot], idLow[slot])] = slot + 1;
+	}
+
+	/**
+	 * Frees the entry and shifts later entries of the same probe run back, so no tombstones are needed.
+	 */
+	private void deleteEntry(int gap) {
+		int mask = index.length - 1;
+		int entry = gap;
+		while (true) {
+			entry = (entry + 1) & mask;
+			if (index[entry] == 0) {
+				break;
+			}
+			int slot = index[entry] - 1;
+			int home = hash(idHigh[slot], idLow[slot]) & mask;
+			//the entry may fill the gap unless its home lies cyclically in (gap, entry]
+			boolean stays = gap <= entry ? home > gap && home <= entry : home > gap || home <= entry;
+			if (!stays) {
+				index[gap] = index[entry];
+				gap = entry;
+			}
+		}
+		index[gap] = 0;
+	}
+
+	//names and zones
+
+	private int intern(String name) {
+		if (name == null) {
+			return NO_NAME;
+		}
+		Integer existing = nameIdByName.get(name);
+		if (existing != null) {
+			nameRefs[existing]++;
+			return existing;
+		}
+		int id;
+		if (freeNameCount > 0) {
+			id = freeNameIds[--freeNameCount];
+		} else {
+			if (nameCount == names.length) {
+				names = Arrays.copyOf(names, nameCount * 2);
+				nameRefs = Arrays.copyOf(nameRefs, nameCount * 2);
+			}
+			id = nameCount++;
+		}
+		names[id] = name;
+		nameRefs[id] = 1;
+		nameIdByName.put(name, id);
+		return id;
+	}
+
+	private void release(int nameId) {
+		if (nameId == NO_NAME || --nameRefs[nameId] > 0) {
+			return;
+		}
+		nameIdByName.remove(names[nameId]);
+		names[nameId] = null;
+		if (freeNameCount == freeNameIds.length) {
+			freeNameIds = Arrays.copyOf(freeNameIds, freeNameCount * 2);
+		}
+		freeNameIds[freeNameCount++] = nameId;
+	}
+
+	private boolean nameEquals(int nameId, String name) {
+		return nameId == NO_NAME ? name == null : names[nameId].equals(name);
+	}
+}
@@ -0,0 +1,57 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of which sensors are currently active and under which zone and type they are counted.
+ * The running totals live in each {@link Zone}; this index only remembers membership so that each
+ * change can be turned into a count change, even when several threads report changes at once or a
+ * sensor has moved to another zone.
+ */
+class ActiveSensorIndex {
+
+	private final Map<UUID, Counted> activeSensors = new ConcurrentHashMap<>();
+
+	/**
+	 * Records where the sensor is counted now.
+	 * @param current Where the sensor is counted, from {@link #counted(Sensor)}, or null if it is inactive
+	 * @return Where the sensor was previously counted, or null if it was inactive
+	 */
+	Counted update(UUID sensorId, Counted current) {
+		return current != null ? activeSensors.put(sensorId, current) : activeSensors.remove(sensorId);
+	}
+
+	/**
+	 * Forgets the sensor, for example after it has been removed from the system.
+	 * @param sensor The sensor to forget
+	 * @return Where the sensor was previously counted, or null if it was inactive
+	 */
+	Counted remove(Sensor sensor) {
+		return activeSensors.remove(sensor.getSensorId());
+	}
+
+	/**
+	 * @return Where the sensor is counted now, or null if it is inactive
+	 */
+	static Counted counted(Sensor sensor) {
+		return Boolean.TRUE.equals(sensor.getActive()) ? new Counted(sensor.getZone(), sensor.getSensorType()) : null;
+	}
+
+	/**
+	 * The zone and type an active sensor is counted under.
+	 */
+	static final class Counted {
+		final String zone;
+		final SensorType sensorType;
+
+		Counted(String zone, SensorType sensorType) {
+			this.zone = zone;
+			this.sensorType = sensorType;
+		}
+	}
+}
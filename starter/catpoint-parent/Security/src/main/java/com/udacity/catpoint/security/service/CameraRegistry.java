@@ -0,0 +1,239 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Feeds frames from any number of cameras into a shared pool of classification workers.
+ *
+ * Each camera holds at most one waiting frame: a new frame replaces one that has not been picked up
+ * yet, so a slow classifier drops stale frames instead of queueing them, and memory stays at two
+ * frames per camera (one waiting, one being classified) however fast the cameras send. Each camera
+ * has at most one task in the worker queue and hands its worker back after every frame, so busy
+ * cameras cannot starve quiet ones.
+ *
+ * The system sees a cat while any camera's latest verdict is a cat. While the system is disarmed
+ * frames are dropped without being classified.
+ */
+public class CameraRegistry implements AutoCloseable {
+
+	private final SecurityService securityService;
+	private final Executor workers;
+	private final ExecutorService ownedWorkers;
+	private final ConcurrentHashMap<String, Camera> cameras = new ConcurrentHashMap<>();
+	private final Object verdictLock = new Object();
+	private int camerasSeeingCat; //guarded by verdictLock
+
+	/**
+	 * Creates a registry with its own pool of classification threads.
+	 * @param securityService Service that classifies frames and receives the verdicts
+	 * @param workerThreads Number of frames classified at once across all cameras
+	 */
+	public CameraRegistry(SecurityService securityService, int workerThreads) {
+		if (workerThreads <= 0) {
+			throw new IllegalArgumentException("Worker count must be positive");
+		}
+		AtomicInteger threadCount = new AtomicInteger();
+		this.ownedWorkers = Executors.newFixedThreadPool(workerThreads, r -> {
+			Thread t = new Thread(r, "catpoint-camera-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		this.workers = ownedWorkers;
+		this.securityService = securityService;
+	}
+
+	/**
+	 * Creates a registry that classifies on the given executor, which the caller owns.
+	 */
+	public CameraRegistry(SecurityService securityService, Executor workers) {
+		this.securityService = securityService;
+		this.workers = workers;
+		this.ownedWorkers = null;
+	}
+
+	/**
+	 * Adds a camera that sends every frame to the classifier.
+	 * @param cameraId Unique name of the camera
+	 */
+	public Camera register(String cameraId) {
+		return register(cameraId, null);
+	}
+
+	/**
+	 * Adds a camera.
+	 * @param cameraId Unique name of the camera
+	 * @param frameGate Skips frames that match this camera's last classified frame, or null to classify every frame
+	 */
+	public Camera register(String cameraId, FrameDifferenceGate frameGate) {
+		Camera camera = new Camera(cameraId, frameGate);
+		if (cameras.putIfAbsent(cameraId, camera) != null) {
+			throw new IllegalArgumentException("Camera already registered: " + cameraId);
+		}
+		return camera;
+	}
+
+	/**
+	 * Removes the camera. Its pending frame is dropped and its verdict no longer counts.
+	 */
+	public void unregister(String cameraId) {
+		Camera camera = cameras.remove(cameraId);
+		if (camera == null) {
+			return;
+		}
+		camera.pending.set(null);
+		synchronized (verdictLock) {
+			camera.removed = true;
+			if (camera.catSeen) {
+				camera.catSeen = false;
+				camerasSeeingCat--;
+				securityService.catDetected(camerasSeeingCat > 0);
+			}
+		}
+	}
+
+	public Camera getCamera(String cameraId) {
+		return cameras.get(cameraId);
+	}
+
+	public Collection<Camera> getCameras() {
+		return Collections.unmodifiableCollection(cameras.values());
+	}
+
+	/**
+	 * Stops the worker pool if this registry created it. Frames already being classified finish.
+	 */
+	@Override
+	public void close() {
+		if (ownedWorkers != null) {
+			ownedWorkers.shutdown();
+		}
+	}
+
+	private boolean disarmed() {
+		return securityService.getArmingStatus() == ArmingStatus.DISARMED;
+	}
+
+	/**
+	 * Records one camera's verdict and passes the combined verdict of all cameras to the service.
+	 */
+	private void applyVerdict(Camera camera, boolean cat) {
+		synchronized (verdictLock) {
+			if (camera.removed) {
+				return;
+			}
+			if (cat != camera.catSeen) {
+				camera.catSeen = cat;
+				camerasSeeingCat += cat ? 1 : -1;
+			}
+			securityService.catDetected(camerasSeeingCat > 0);
+		}
+	}
+
+	/**
+	 * A camera registered with a {@link CameraRegistry}.
+	 */
+	public class Camera {
+		private final String id;
+		private final FrameDifferenceGate frameGate;
+		private final AtomicReference<BufferedImage> pending = new AtomicReference<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final LongAdder submitted = new LongAdder();
+		private final LongAdder dropped = new LongAdder();
+		private final LongAdder classified = new LongAdder();
+		private boolean catSeen; //guarded by verdictLock
+		private boolean removed; //guarded by verdictLock
+
+		private Camera(String id, FrameDifferenceGate frameGate) {
+			this.id = id;
+			this.frameGate = frameGate;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		/**
+		 * Offers a new frame from this camera. Never blocks; the frame replaces any frame from this
+		 * camera that is still waiting.
+		 * @param image The new camera frame
+		 */
+		public void submit(BufferedImage image) {
+			submitted.increment();
+			if (disarmed()) {
+				dropped.increment();
+				return;
+			}
+			if (pending.getAndSet(image) != null) {
+				dropped.increment();
+			}
+			schedule();
+		}
+
+		/**
+		 * @return Number of frames offered by this camera
+		 */
+		public long getSubmittedFrames() {
+			return submitted.sum();
+		}
+
+		/**
+		 * @return Number of frames replaced by a newer one, or dropped while disarmed
+		 */
+		public long getDroppedFrames() {
+			return dropped.sum();
+		}
+
+		/**
+		 * @return Number of frames sent to the image service
+		 */
+		public long getClassifiedFrames() {
+			return classified.sum();
+		}
+
+		private void schedule() {
+			if (pending.get() != null && scheduled.compareAndSet(false, true)) {
+				workers.execute(this::classifyPending);
+			}
+		}
+
+		/**
+		 * Classifies the waiting frame, then gives up the worker and schedules again if another frame arrived meanwhile.
+		 */
+		private void classifyPending() {
+			try {
+				BufferedImage image = pending.getAndSet(null);
+				if (image == null) {
+					return;
+				}
+				if (disarmed()) {
+					dropped.increment();
+					return;
+				}
+				if (frameGate != null && !frameGate.shouldClassify(image)) {
+					return; //same scene as this camera's last scan, keep its verdict
+				}
+				classified.increment();
+				boolean cat = securityService.imageContainsCat(image);
+				if (frameGate != null) {
+					frameGate.markClassified(image);
+				}
+				applyVerdict(this, cat);
+			} finally {
+				scheduled.set(false);
+				schedule();
+			}
+		}
+	}
+}
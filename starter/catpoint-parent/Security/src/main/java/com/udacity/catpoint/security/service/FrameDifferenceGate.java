@@ -0,0 +1,88 @@
+package com.udacity.catpoint.security.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Decides whether a camera frame differs enough from the last classified frame to be worth
+ * sending to the ImageService. Most frames show the same empty room, and those can keep the
+ * previous verdict.
+ *
+ * Both frames are shrunk to a small greyscale thumbnail; the frame counts as changed when the
+ * fraction of thumbnail pixels whose brightness moved by more than a small noise margin exceeds
+ * the configured threshold.
+ */
+public class FrameDifferenceGate {
+
+	private static final int THUMB_WIDTH = 32;
+	private static final int THUMB_HEIGHT = 24;
+	private static final int NOISE_LEVEL = 16; //brightness steps ignored as sensor noise
+
+	private final double changedFraction;
+	private byte[] lastClassified;
+
+	/**
+	 * @param changedFraction Fraction of pixels (0 to 1) that must change before a frame is classified again
+	 */
+	public FrameDifferenceGate(double changedFraction) {
+		if (changedFraction < 0 || changedFraction > 1) {
+			throw new IllegalArgumentException("Changed fraction must be between 0 and 1");
+		}
+		this.changedFraction = changedFraction;
+	}
+
+	/**
+	 * Returns true if the frame differs enough from the last classified frame to be classified.
+	 * @param image The new camera frame
+	 */
+	public boolean shouldClassify(BufferedImage image) {
+		if (image == null) {
+			return true;
+		}
+		byte[] thumbnail = luminance(image);
+		synchronized (this) {
+			return lastClassified == null || changed(lastClassified, thumbnail);
+		}
+	}
+
+	/**
+	 * Remembers the frame as the last classified one. Call this only once the frame's verdict has
+	 * arrived, so a frame whose scan failed is still classified when it is seen again.
+	 * @param image The frame that was classified
+	 */
+	public void markClassified(BufferedImage image) {
+		if (image == null) {
+			return;
+		}
+		byte[] thumbnail = luminance(image);
+		synchronized (this) {
+			lastClassified = thumbnail;
+		}
+	}
+
+	private boolean changed(byte[] previous, byte[] current) {
+		int limit = (int) (changedFraction * current.length);
+		int changed = 0;
+		for (int i = 0; i < current.length; i++) {
+			if (Math.abs((previous[i] & 0xff) - (current[i] & 0xff)) > NOISE_LEVEL && ++changed > limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static byte[] luminance(BufferedImage image) {
+		BufferedImage thumb = new BufferedImage(THUMB_WIDTH, THUMB_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D g = thumb.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(image, 0, 0, THUMB_WIDTH, THUMB_HEIGHT, null);
+		} finally {
+			g.dispose();
+		}
+		byte[] pixels = new byte[THUMB_WIDTH * THUMB_HEIGHT];
+		thumb.getRaster().getDataElements(0, 0, THUMB_WIDTH, THUMB_HEIGHT, pixels);
+		return pixels;
+	}
+}
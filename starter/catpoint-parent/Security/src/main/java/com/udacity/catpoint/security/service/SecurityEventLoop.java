@@ -0,0 +1,209 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Optional front end for a {@link SecurityService} that lets any number of threads submit sensor
+ * changes, arming changes and image results without touching the service directly. Events are
+ * written into a preallocated ring buffer and a single writer thread applies them to the service
+ * in the order they were claimed. Runs of consecutive sensor events are applied as one batch, so
+ * the repository is written and listeners are notified once per run rather than once per event.
+ *
+ * Publishing an event claims a slot with one compare-and-set and fills it in place; nothing is
+ * allocated and no lock is taken. When the ring is full, publishers spin until the writer catches up.
+ * Closing the loop seals the claim counter, so every event is either rejected or applied before the
+ * writer stops.
+ */
+public class SecurityEventLoop implements AutoCloseable {
+
+	//slot types
+	private static final int SENSOR = 1;
+	private static final int ARMING = 2;
+	private static final int CAT = 3;
+
+	private static final int IDLE_SPINS = 100;
+	private static final long IDLE_PARK_NANOS = 50_000;
+	private static final long CLOSED = Long.MIN_VALUE;
+
+	private final SecurityService securityService;
+	private final int capacity;
+	private final int mask;
+	private final Slot[] slots;
+	//sequence number last published into each slot, so the writer knows when a slot is ready
+	private final AtomicLongArray published;
+	//number of slots claimed so far, with CLOSED set once no more may be claimed
+	private final AtomicLong claimed = new AtomicLong();
+	private volatile long consumed = -1;
+	private volatile boolean running = true;
+	private final Thread writer;
+
+	//reused for every batch by the writer thread
+	private final Sensor[] batchSensors;
+	private final boolean[] batchActive;
+
+	/**
+	 * Creates the loop and starts its writer thread.
+	 * @param securityService The service all events are applied to
+	 * @param capacity Number of slots in the ring, must be a power of two
+	 */
+	public SecurityEventLoop(SecurityService securityService, int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+		this.securityService = securityService;
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.slots = new Slot[capacity];
+		this.published = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++) {
+			slots[i] = new Slot();
+			published.set(i, -1);
+		}
+		this.batchSensors = new Sensor[capacity];
+		this.batchActive = new boolean[capacity];
+
+		writer = new Thread(this::run, "catpoint-event-loop");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public void publishSensorChange(Sensor sensor, boolean active) {
+		long sequence = claim();
+		Slot slot = slots[(int) sequence & mask];
+		slot.type = SENSOR;
+		slot.sensor = sensor;
+		slot.active = active;
+		published.lazySet((int) sequence & mask, sequence);
+	}
+
+	public void publishArmingStatus(ArmingStatus armingStatus) {
+		long sequence = claim();
+		Slot slot = slots[(int) sequence & mask];
+		slot.type = ARMING;
+		slot.armingStatus = armingStatus;
+		published.lazySet((int) sequence & mask, sequence);
+	}
+
+	/**
+	 * Publishes the result of an image that has already been classified.
+	 * @param catDetected True if the image contained a cat
+	 */
+	public void publishImageResult(boolean catDetected) {
+		long sequence = claim();
+		Slot slot = slots[(int) sequence & mask];
+		slot.type = CAT;
+		slot.active = catDetected;
+		published.lazySet((int) sequence & mask, sequence);
+	}
+
+	/**
+	 * Stops accepting events, waits until every event accepted so far has been applied, then stops
+	 * the writer. Events published from now on are rejected.
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		claimed.getAndUpdate(c -> c | CLOSED);
+		running = false;
+		LockSupport.unpark(writer);
+		writer.join();
+	}
+
+	/**
+	 * @throws IllegalStateException If the loop has been closed
+	 */
+	private long claim() {
+		long sequence;
+		do {
+			sequence = claimed.get();
+			if ((sequence & CLOSED) != 0) {
+				throw new IllegalStateException("Event loop is closed");
+			}
+		} while (!claimed.compareAndSet(sequence, sequence + 1));
+		//wait for the writer to free the slot we were handed
+		while (sequence - consumed > capacity) {
+			if (!writer.isAlive()) {
+				throw new IllegalStateException("Event loop writer has stopped");
+			}
+			Thread.onSpinWait();
+		}
+		return sequence;
+	}
+
+	private void run() {
+		int idle = 0;
+		//once running is false the claim counter is sealed, so this drains every accepted event
+		while (running || consumed < (claimed.get() & ~CLOSED) - 1) {
+			long next = consumed + 1;
+			if (published.get((int) next & mask) != next) {
+				if (++idle < IDLE_SPINS) {
+					Thread.onSpinWait();
+				} else {
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+				}
+				continue;
+			}
+			idle = 0;
+			try {
+				consumed = apply(next);
+			} catch (RuntimeException e) {
+				consumed = next;
+				report(e);
+			}
+		}
+	}
+
+	private void report(RuntimeException e) {
+		writer.getUncaughtExceptionHandler().uncaughtException(writer, e);
+	}
+
+	/**
+	 * Applies the event at {@code sequence}, plus any sensor events published directly after it.
+	 * @return The sequence number of the last event applied
+	 */
+	private long apply(long sequence) {
+		Slot slot = slots[(int) sequence & mask];
+		switch (slot.type) {
+			case ARMING -> securityService.setArmingStatus(slot.armingStatus);
+			case CAT -> securityService.catDetected(slot.active);
+			case SENSOR -> {
+				int count = 0;
+				long last = sequence;
+				do {
+					Slot s = slots[(int) last & mask];
+					batchSensors[count] = s.sensor;
+					batchActive[count++] = s.active;
+					s.sensor = null;
+					last++;
+				} while (count < capacity && published.get((int) last & mask) == last
+						&& slots[(int) last & mask].type == SENSOR);
+				try {
+					securityService.applySensorEvents(batchSensors, batchActive, count);
+				} catch (RuntimeException e) {
+					report(e); //the whole batch is consumed either way
+				} finally {
+					Arrays.fill(batchSensors, 0, count, null);
+				}
+				return last - 1;
+			}
+			default -> throw new IllegalStateException("Unknown event type " + slot.type);
+		}
+		return sequence;
+	}
+
+	/**
+	 * One preallocated event. Written by exactly one publisher, then read by the writer thread
+	 * after it sees the slot's sequence in {@code published}.
+	 */
+	private static class Slot {
+		int type;
+		Sensor sensor;
+		boolean active;
+		ArmingStatus armingStatus;
+	}
+}
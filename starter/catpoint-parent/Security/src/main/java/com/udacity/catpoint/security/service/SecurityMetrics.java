@@ -0,0 +1,83 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.LatencyHistogram;
+import com.udacity.catpoint.image.service.LatencySnapshot;
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms kept by {@link SecurityService}. All updates are lock-free.
+ */
+class SecurityMetrics implements SecurityMetricsMXBean {
+
+	private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+
+	final LatencyHistogram repositoryWrites = new LatencyHistogram();
+	final LatencyHistogram listenerDispatch = new LatencyHistogram();
+	final LatencyHistogram imageClassification = new LatencyHistogram();
+	private final AtomicLongArray alarmTransitions = new AtomicLongArray(ALARM_STATUSES.length * ALARM_STATUSES.length);
+	private final LongAdder catChecks = new LongAdder();
+	private final LongAdder catDetections = new LongAdder();
+
+	void alarmTransition(AlarmStatus from, AlarmStatus to) {
+		if (from != null && to != null) {
+			alarmTransitions.incrementAndGet(from.ordinal() * ALARM_STATUSES.length + to.ordinal());
+		}
+	}
+
+	void catChecked(boolean cat) {
+		catChecks.increment();
+		if (cat) {
+			catDetections.increment();
+		}
+	}
+
+	@Override
+	public LatencySnapshot getRepositoryWriteLatency() {
+		return repositoryWrites.snapshot();
+	}
+
+	@Override
+	public LatencySnapshot getListenerDispatchLatency() {
+		return listenerDispatch.snapshot();
+	}
+
+	@Override
+	public LatencySnapshot getImageClassificationLatency() {
+		return imageClassification.snapshot();
+	}
+
+	@Override
+	public Map<String, Long> getAlarmTransitions() {
+		Map<String, Long> transitions = new LinkedHashMap<>();
+		for (AlarmStatus from : ALARM_STATUSES) {
+			for (AlarmStatus to : ALARM_STATUSES) {
+				long n = alarmTransitions.get(from.ordinal() * ALARM_STATUSES.length + to.ordinal());
+				if (n > 0) {
+					transitions.put(from + "->" + to, n);
+				}
+			}
+		}
+		return transitions;
+	}
+
+	@Override
+	public long getCatChecks() {
+		return catChecks.sum();
+	}
+
+	@Override
+	public long getCatDetections() {
+		return catDetections.sum();
+	}
+
+	@Override
+	public double getCatDetectionRate() {
+		long checks = catChecks.sum();
+		return checks == 0 ? 0 : (double) catDetections.sum() / checks;
+	}
+}
@@ -0,0 +1,40 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.LatencySnapshot;
+
+import java.util.Map;
+
+/**
+ * Security service metrics published over JMX by {@link SecurityService#registerMetrics(String)}.
+ */
+public interface SecurityMetricsMXBean {
+
+	/**
+	 * @return Time spent in each call to the SecurityRepository that changes state
+	 */
+	LatencySnapshot getRepositoryWriteLatency();
+
+	/**
+	 * @return Time each listener took to handle one delivery of pending updates
+	 */
+	LatencySnapshot getListenerDispatchLatency();
+
+	/**
+	 * @return Time the ImageService took to classify a camera frame
+	 */
+	LatencySnapshot getImageClassificationLatency();
+
+	/**
+	 * @return Number of alarm status changes, keyed as "FROM->TO"
+	 */
+	Map<String, Long> getAlarmTransitions();
+
+	long getCatChecks();
+
+	long getCatDetections();
+
+	/**
+	 * @return Fraction of applied image results that found a cat, or 0 if there have been none
+	 */
+	double getCatDetectionRate();
+}
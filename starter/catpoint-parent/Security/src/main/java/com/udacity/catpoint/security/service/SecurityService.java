@@ -7,11 +7,27 @@ import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 
 /**
@@ -20,15 +36,37 @@ import java.util.concurrent.ConcurrentSkipListSet;
  *
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ *
+ * Sensors are grouped into zones (see {@link Sensor#getZone()}). Each {@link Zone} has its own
+ * arming status, alarm sub-state and active sensor counts behind its own lock, so sensor changes in
+ * different zones never wait for each other. The whole-house alarm status is the most severe zone
+ * status. It is read from a tally of zones per status that each zone keeps up to date, so no
+ * sensor or zone is scanned. It is kept with the whole-house arming status and the cat flag in an
+ * immutable {@link SecurityState}, which is swapped by compare-and-set only when one of them
+ * changes. The camera watches the default zone. The state is loaded from the repository the first
+ * time it is needed. Zone states are not stored, so after a restart every zone starts out with the
+ * stored whole-house statuses.
  */
 public class SecurityService {
 
 	private FakeImageService fakeImageService;
 	private SecurityRepository securityRepository;
-	private Set<StatusListener> statusListeners = new HashSet<>();
+	private final SecurityMetrics metrics = new SecurityMetrics();
+	private final StatusListenerDispatcher statusListeners = new StatusListenerDispatcher(metrics.listenerDispatch);
 
 	private ImageService imageService;
-	private Boolean catIndentify = false;
+	private static final float CAT_CONFIDENCE = 50.0f;
+	//declared from least to most severe
+	private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+
+	private final AtomicReference<SecurityState> state = new AtomicReference<>();
+	private volatile FrameDifferenceGate frameGate;
+	private final AtomicLong latestScan = new AtomicLong();
+	private final AtomicReference<CompletableFuture<Boolean>> pendingScan = new AtomicReference<>();
+	private final ConcurrentMap<String, Zone> zones = new ConcurrentHashMap<>();
+	//number of zones in each alarm status, indexed by ordinal
+	private final AtomicIntegerArray alarmTally = new AtomicIntegerArray(ALARM_STATUSES.length);
+	private final ActiveSensorIndex activeSensorIndex = new ActiveSensorIndex(); //filled together with the first state
 
 	public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
 		this.securityRepository = securityRepository;
@@ -37,26 +75,44 @@ public class SecurityService {
 
 	/**
 	 * Internal method that handles alarm status changes based on whether
-	 * the camera currently shows a cat.
+	 * the camera currently shows a cat. Package-private so {@link SecurityEventLoop} can apply
+	 * image results that were classified elsewhere.
 	 * @param cat True if a cat is detected, otherwise false.
 	 */
-	private void catDetected(Boolean cat) {
-		catIndentify = cat;
-		if (cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-			setAlarmStatus(AlarmStatus.ALARM);
-		} else if (!cat && getSensors().stream().noneMatch(Sensor::getActive)) { // Update for test 8
-			setAlarmStatus(AlarmStatus.NO_ALARM);
+	void catDetected(Boolean cat) {
+		metrics.catChecked(cat);
+		transition(s -> s.withCatDetected(cat));
+		Zone zone = zone(Sensor.DEFAULT_ZONE);
+		synchronized (zone) {
+			if (cat && zone.getArmingStatus() == ArmingStatus.ARMED_HOME) {
+				zone.setAlarmStatus(AlarmStatus.ALARM);
+			} else if (!cat && zone.getActiveCount() == 0) { // Update for test 8
+				zone.setAlarmStatus(AlarmStatus.NO_ALARM);
+			}
 		}
+		updateAlarmStatus();
 
-		statusListeners.forEach(sl -> sl.catDetected(cat));
+		statusListeners.catDetected(cat);
 	}
 
 	/**
 	 * Register the StatusListener for alarm system updates from within the SecurityService.
+	 * Updates are delivered synchronously on the thread that caused them.
 	 * @param statusListener
 	 */
 	public void addStatusListener(StatusListener statusListener) {
-		statusListeners.add(statusListener);
+		addStatusListener(statusListener, Runnable::run);
+	}
+
+	/**
+	 * Register the StatusListener for updates delivered on the given executor, for example
+	 * {@code SwingUtilities::invokeLater} for Swing components. Updates that arrive while an earlier
+	 * delivery is still pending are coalesced, so the listener only sees the latest state.
+	 * @param statusListener
+	 * @param executor Executor that runs the listener callbacks
+	 */
+	public void addStatusListener(StatusListener statusListener, Executor executor) {
+		statusListeners.add(statusListener, executor);
 	}
 
 	public void removeStatusListener(StatusListener statusListener) {
@@ -64,26 +120,26 @@ public class SecurityService {
 	}
 
 	/**
-	 * Internal method for updating the alarm status when a sensor has been activated.
+	 * The alarm status that follows a sensor activation, without applying it.
 	 */
-	private void handleSensorActivated() {
-		if (securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-			return; //no problem if the system is disarmed
-		}
-		switch (securityRepository.getAlarmStatus()) {
-			case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-			case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
+	private static AlarmStatus alarmStatusAfterActivation(ArmingStatus armingStatus, AlarmStatus alarmStatus) {
+		if (armingStatus == ArmingStatus.DISARMED) {
+			return alarmStatus; //no problem if the system is disarmed
 		}
+		return switch (alarmStatus) {
+			case NO_ALARM -> AlarmStatus.PENDING_ALARM;
+			case PENDING_ALARM, ALARM -> AlarmStatus.ALARM;
+		};
 	}
 
 	/**
-	 * Internal method for updating the alarm status when a sensor has been deactivated
+	 * The alarm status that follows a sensor deactivation, without applying it.
 	 */
-	private void handleSensorDeactivated() {
-		switch (securityRepository.getAlarmStatus()) {
-			case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
-			case ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-		}
+	private static AlarmStatus alarmStatusAfterDeactivation(AlarmStatus alarmStatus) {
+		return switch (alarmStatus) {
+			case PENDING_ALARM, NO_ALARM -> AlarmStatus.NO_ALARM;
+			case ALARM -> AlarmStatus.PENDING_ALARM;
+		};
 	}
 
 	/**
@@ -92,38 +148,90 @@ public class SecurityService {
 	 * @param active
 	 */
 	public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
-		AlarmStatus status = securityRepository.getAlarmStatus();
-		if (status != AlarmStatus.ALARM) {
-			/*if ((!sensor.getActive() && active) || (sensor.getActive() && active)) {
-				handleSensorActivated();
-			} else if ((sensor.getActive() && !active) || (!sensor.getActive() && !active)) {
-				handleSensorDeactivated();
-			}*/
-
-			if (active) {
-				handleSensorActivated();
-			} else if (sensor.getActive()) {
-				handleSensorDeactivated();
-			}
-		}
+		boolean wasActive = Boolean.TRUE.equals(sensor.getActive());
 		sensor.setActive(active);
+		applySensorChange(recount(sensor), active, wasActive);
+		updateAlarmStatus();
+		long start = System.nanoTime();
 		securityRepository.updateSensor(sensor);
+		metrics.repositoryWrites.recordSince(start);
 	}
 
 	public void changeSensorActivationStatus(Sensor sensor) {
-		AlarmStatus status = this.getAlarmStatus();
-		ArmingStatus armingStatus = this.getArmingStatus();
-		if (status == AlarmStatus.PENDING_ALARM && !sensor.getActive()) {
-			/*if ((!sensor.getActive() && active) || (sensor.getActive() && active)) {
-				handleSensorActivated();
-			} else if ((sensor.getActive() && !active) || (!sensor.getActive() && !active)) {
-				handleSensorDeactivated();
-			}*/
-			handleSensorDeactivated();
-		} else if (status == AlarmStatus.ALARM && armingStatus == ArmingStatus.DISARMED) {
-			handleSensorDeactivated();
+		Zone zone = recount(sensor);
+		synchronized (zone) {
+			AlarmStatus status = zone.getAlarmStatus();
+			if (status == AlarmStatus.PENDING_ALARM && !sensor.getActive()) {
+				status = alarmStatusAfterDeactivation(status);
+			} else if (status == AlarmStatus.ALARM && zone.getArmingStatus() == ArmingStatus.DISARMED) {
+				status = alarmStatusAfterDeactivation(status);
+			}
+			zone.setAlarmStatus(status);
 		}
+		updateAlarmStatus();
+		long start = System.nanoTime();
 		securityRepository.updateSensor(sensor);
+		metrics.repositoryWrites.recordSince(start);
+	}
+
+	/**
+	 * Apply a burst of sensor changes in order, using the same rules as
+	 * {@link #changeSensorActivationStatus(Sensor, Boolean)}, but write the alarm status and the changed
+	 * sensors to the repository once and notify listeners once with the final state.
+	 * @param events The sensor changes, applied in iteration order
+	 */
+	public void applySensorEvents(Collection<SensorEvent> events) {
+		Sensor[] sensors = new Sensor[events.size()];
+		boolean[] active = new boolean[events.size()];
+		int i = 0;
+		for (SensorEvent event : events) {
+			sensors[i] = event.getSensor();
+			active[i++] = event.isActive();
+		}
+		applySensorEvents(sensors, active, i);
+	}
+
+	/**
+	 * Array form of {@link #applySensorEvents(Collection)} used by {@link SecurityEventLoop}, which
+	 * reuses the same arrays for every batch.
+	 * @param sensors The sensors to change, only the first {@code count} are used
+	 * @param active The new activation status of each sensor
+	 * @param count Number of events in the arrays
+	 */
+	void applySensorEvents(Sensor[] sensors, boolean[] active, int count) {
+		if (count == 0) {
+			return;
+		}
+		//each event only locks its own zone; the whole-house status is brought up to date once at the end
+		for (int i = 0; i < count; i++) {
+			Sensor sensor = sensors[i];
+			boolean wasActive = Boolean.TRUE.equals(sensor.getActive());
+			sensor.setActive(active[i]);
+			applySensorChange(recount(sensor), active[i], wasActive);
+		}
+		updateAlarmStatus();
+		long start = System.nanoTime();
+		securityRepository.updateSensors(Arrays.asList(sensors).subList(0, count));
+		metrics.repositoryWrites.recordSince(start);
+		statusListeners.sensorStatusChanged();
+	}
+
+	/**
+	 * Applies the alarm rules for one sensor becoming active or inactive to the sensor's zone.
+	 * Once a zone is in alarm, sensor changes no longer affect it.
+	 */
+	private static void applySensorChange(Zone zone, boolean active, boolean wasActive) {
+		synchronized (zone) {
+			AlarmStatus status = zone.getAlarmStatus();
+			if (status == AlarmStatus.ALARM) {
+				return;
+			}
+			if (active) {
+				zone.setAlarmStatus(alarmStatusAfterActivation(zone.getArmingStatus(), status));
+			} else if (wasActive) {
+				zone.setAlarmStatus(alarmStatusAfterDeactivation(status));
+			}
+		}
 	}
 
 	/**
@@ -132,12 +240,101 @@ public class SecurityService {
 	 * @param currentCameraImage
 	 */
 	public void processImage(BufferedImage currentCameraImage) {
+		FrameDifferenceGate gate = frameGate;
+		if (gate != null && !gate.shouldClassify(currentCameraImage)) {
+			return; //same scene as the last scan, keep its verdict
+		}
 		// The imageContainsCat can be called from AwsImageService or FakeImageService
-		catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+		boolean cat = imageContainsCat(currentCameraImage);
+		if (gate != null) {
+			gate.markClassified(currentCameraImage);
+		}
+		catDetected(cat);
+	}
+
+	/**
+	 * Non-blocking variant of {@link #processImage(BufferedImage)}. The image is classified in the
+	 * background and the result is applied when it arrives, unless a newer image has been submitted
+	 * in the meantime, in which case the older scan is cancelled and its result ignored.
+	 * @param currentCameraImage
+	 * @return Completes with the cat result once it has been applied, or is cancelled if superseded
+	 */
+	public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage) {
+		FrameDifferenceGate gate = frameGate;
+		if (gate != null && !gate.shouldClassify(currentCameraImage)) {
+			return CompletableFuture.completedFuture(state().isCatDetected());
+		}
+		long scan = latestScan.incrementAndGet();
+		long start = System.nanoTime();
+		CompletableFuture<Boolean> result = imageService.imageContainsCatAsync(currentCameraImage, CAT_CONFIDENCE)
+				.thenApply(cat -> {
+					metrics.imageClassification.recordSince(start);
+					if (latestScan.get() != scan) {
+						throw new CancellationException("Superseded by a newer image");
+					}
+					if (gate != null) {
+						gate.markClassified(currentCameraImage);
+					}
+					catDetected(cat);
+					return cat;
+				});
+		CompletableFuture<Boolean> previous = pendingScan.getAndSet(result);
+		if (previous != null) {
+			previous.cancel(false);
+		}
+		return result;
+	}
+
+	/**
+	 * Classifies the image without applying the result, for callers such as {@link CameraRegistry}
+	 * that combine several cameras before calling {@link #catDetected(Boolean)}.
+	 */
+	boolean imageContainsCat(BufferedImage image) {
+		long start = System.nanoTime();
+		boolean cat = imageService.imageContainsCat(image, CAT_CONFIDENCE);
+		metrics.imageClassification.recordSince(start);
+		return cat;
+	}
+
+	/**
+	 * @return Latency histograms and counters for this service
+	 */
+	public SecurityMetricsMXBean getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Publishes this service's metrics as the platform MBean {@code com.udacity.catpoint:type=SecurityService,name=<name>}.
+	 * @return The name the MBean was registered under
+	 */
+	public ObjectName registerMetrics(String name) {
+		try {
+			ObjectName objectName = new ObjectName("com.udacity.catpoint:type=SecurityService,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Unable to register security service metrics", e);
+		}
+	}
+
+	/**
+	 * Only classify frames that differ from the last classified one. Pass null to classify every frame.
+	 * @param frameGate
+	 */
+	public void setFrameGate(FrameDifferenceGate frameGate) {
+		this.frameGate = frameGate;
+	}
+
+	/**
+	 * Loads the state from the repository now instead of on first use, so it can be done on a
+	 * background thread before the first caller that cannot wait. Does nothing once loaded.
+	 */
+	public void load() {
+		state();
 	}
 
 	public AlarmStatus getAlarmStatus() {
-		return securityRepository.getAlarmStatus();
+		return state().getAlarmStatus();
 	}
 
 	/**
@@ -145,8 +342,31 @@ public class SecurityService {
 	 * @param status
 	 */
 	public void setAlarmStatus(AlarmStatus status) {
-		securityRepository.setAlarmStatus(status);
-		statusListeners.forEach(sl -> sl.notify(status));
+		state();
+		for (Zone zone : zones.values()) {
+			zone.setAlarmStatus(status);
+		}
+		SecurityState previous = updateAlarmStatus();
+		if (previous.getAlarmStatus() == status) {
+			//nothing changed, but an explicit set is still written and announced
+			publishAlarmStatus(status);
+		}
+	}
+
+	/**
+	 * @return The alarm sub-state of one zone
+	 * @throws IllegalArgumentException If no sensor is in the zone and it has never been armed
+	 */
+	public AlarmStatus getAlarmStatus(String zone) {
+		return existingZone(zone).getAlarmStatus();
+	}
+
+	/**
+	 * @return The names of all zones that have sensors or have been armed, in alphabetical order
+	 */
+	public Set<String> getZones() {
+		state();
+		return new TreeSet<>(zones.keySet());
 	}
 
 	public Set<Sensor> getSensors() {
@@ -154,15 +374,58 @@ public class SecurityService {
 	}
 
 	public void addSensor(Sensor sensor) {
+		recount(sensor);
+		long start = System.nanoTime();
 		securityRepository.addSensor(sensor);
+		metrics.repositoryWrites.recordSince(start);
 	}
 
 	public void removeSensor(Sensor sensor) {
+		state();
+		ActiveSensorIndex.Counted previous = activeSensorIndex.remove(sensor);
+		if (previous != null) {
+			zone(previous.zone).countActive(previous.sensorType, -1);
+		}
+		long start = System.nanoTime();
 		securityRepository.removeSensor(sensor);
+		metrics.repositoryWrites.recordSince(start);
+	}
+
+	/**
+	 * @return True if at least one sensor is currently active. Adds up the zone counts, does not scan the sensors.
+	 */
+	public boolean hasActiveSensors() {
+		return getActiveSensorCount() > 0;
+	}
+
+	public int getActiveSensorCount() {
+		state();
+		int count = 0;
+		for (Zone zone : zones.values()) {
+			count += zone.getActiveCount();
+		}
+		return count;
+	}
+
+	public int getActiveSensorCount(SensorType sensorType) {
+		state();
+		int count = 0;
+		for (Zone zone : zones.values()) {
+			count += zone.getActiveCount(sensorType);
+		}
+		return count;
+	}
+
+	/**
+	 * @return Number of active sensors in one zone
+	 * @throws IllegalArgumentException If no sensor is in the zone and it has never been armed
+	 */
+	public int getActiveSensorCount(String zone) {
+		return existingZone(zone).getActiveCount();
 	}
 
 	public ArmingStatus getArmingStatus() {
-		return securityRepository.getArmingStatus();
+		return state().getArmingStatus();
 	}
 
 	/**
@@ -171,20 +434,213 @@ public class SecurityService {
 	 * @param armingStatus
 	 */
 	public void setArmingStatus(ArmingStatus armingStatus) {
-		if (catIndentify && armingStatus == ArmingStatus.ARMED_HOME) {
-			setAlarmStatus(AlarmStatus.ALARM);
+		transition(s -> s.withArmingStatus(armingStatus));
+		for (Zone zone : zones.values()) {
+			applyArmingStatus(zone, armingStatus);
 		}
+		if (armingStatus != ArmingStatus.DISARMED) {
+			deactivateSensors(null);
+		}
+		updateAlarmStatus();
+		statusListeners.sensorStatusChanged();
+	}
 
-		if (armingStatus == ArmingStatus.DISARMED) {
-			setAlarmStatus(AlarmStatus.NO_ALARM);
-		} else {
-			ConcurrentSkipListSet<Sensor> sensors = new ConcurrentSkipListSet<>(getSensors());
-			for (Sensor sensor :
-					sensors) {
-				changeSensorActivationStatus(sensor, false);
+	/**
+	 * @return The arming status of one zone
+	 * @throws IllegalArgumentException If no sensor is in the zone and it has never been armed
+	 */
+	public ArmingStatus getArmingStatus(String zone) {
+		return existingZone(zone).getArmingStatus();
+	}
+
+	/**
+	 * Sets the arming status of one zone, creating the zone if it has no sensors yet, with the same
+	 * rules as {@link #setArmingStatus(ArmingStatus)} applied to that zone only. The whole-house
+	 * arming status is left as it is.
+	 * @param zone
+	 * @param armingStatus
+	 */
+	public void setArmingStatus(String zone, ArmingStatus armingStatus) {
+		applyArmingStatus(zone(zone), armingStatus);
+		if (armingStatus != ArmingStatus.DISARMED) {
+			deactivateSensors(zone);
+		}
+		updateAlarmStatus();
+		statusListeners.sensorStatusChanged();
+	}
+
+	/**
+	 * Resets the active sensors in a zone, or in every zone if {@code zone} is null, with the same
+	 * rules as {@link #changeSensorActivationStatus(Sensor, Boolean)}, and writes them to the
+	 * repository in one call. The caller brings the whole-house alarm status up to date.
+	 */
+	private void deactivateSensors(String zone) {
+		List<Sensor> reset = new ArrayList<>();
+		for (Sensor sensor : getSensors()) {
+			if (Boolean.TRUE.equals(sensor.getActive()) && (zone == null || zone.equals(sensor.getZone()))) {
+				sensor.setActive(false);
+				applySensorChange(recount(sensor), false, true);
+				reset.add(sensor);
+			}
+		}
+		if (!reset.isEmpty()) {
+			long start = System.nanoTime();
+			securityRepository.updateSensors(reset);
+			metrics.repositoryWrites.recordSince(start);
+		}
+	}
+
+	private void applyArmingStatus(Zone zone, ArmingStatus armingStatus) {
+		synchronized (zone) {
+			zone.setArmingStatus(armingStatus);
+			if (armingStatus == ArmingStatus.DISARMED) {
+				zone.setAlarmStatus(AlarmStatus.NO_ALARM);
+			} else if (armingStatus == ArmingStatus.ARMED_HOME && zone.getName().equals(Sensor.DEFAULT_ZONE)
+					&& state().isCatDetected()) {
+				zone.setAlarmStatus(AlarmStatus.ALARM);
+			}
+		}
+	}
+
+	/**
+	 * Brings the whole-house alarm status in line with the zones. The zone tally is read outside the
+	 * swap, so a thread holding an older reading can swap its status in after this thread found nothing
+	 * to change. Every thread therefore checks the tally again after its own swap and repeats until the
+	 * status matches, which leaves the last one to finish with the status of the latest tally.
+	 * @return The state that was replaced by the first swap
+	 */
+	private SecurityState updateAlarmStatus() {
+		SecurityState previous = transition(s -> s.withAlarmStatus(aggregateAlarmStatus(s.getAlarmStatus())));
+		SecurityState current;
+		while ((current = state()).getAlarmStatus() != aggregateAlarmStatus(current.getAlarmStatus())) {
+			transition(s -> s.withAlarmStatus(aggregateAlarmStatus(s.getAlarmStatus())));
+		}
+		return previous;
+	}
+
+	/**
+	 * @return The most severe zone alarm status, or the given status if no zone has one yet
+	 */
+	private AlarmStatus aggregateAlarmStatus(AlarmStatus current) {
+		AlarmStatus mostSevere = Zone.mostSevereAlarmStatus(alarmTally);
+		return mostSevere != null ? mostSevere : current;
+	}
+
+	/**
+	 * Counts the sensor where it is counted now, taking it out of where it was counted before, which
+	 * may be another zone. Each zone's counts are changed under that zone's lock alone.
+	 * @return The sensor's zone
+	 */
+	private Zone recount(Sensor sensor) {
+		Zone zone = zone(sensor.getZone());
+		ActiveSensorIndex.Counted current = ActiveSensorIndex.counted(sensor);
+		ActiveSensorIndex.Counted previous = activeSensorIndex.update(sensor.getSensorId(), current);
+		if (previous != null) {
+			zone(previous.zone).countActive(previous.sensorType, -1);
+		}
+		if (current != null) {
+			zone.countActive(current.sensorType, 1);
+		}
+		return zone;
+	}
+
+	/**
+	 * @return The zone with this name, created with the whole-house arming status if it does not exist yet
+	 */
+	private Zone zone(String name) {
+		ArmingStatus armingStatus = state().getArmingStatus();
+		Zone zone = zones.get(name);
+		return zone != null ? zone : zones.computeIfAbsent(name, n -> new Zone(n, armingStatus, AlarmStatus.NO_ALARM, alarmTally));
+	}
+
+	private Zone existingZone(String name) {
+		state();
+		Zone zone = zones.get(name);
+		if (zone == null) {
+			throw new IllegalArgumentException("No zone named " + name);
+		}
+		return zone;
+	}
+
+	/**
+	 * Atomically replaces the current state with {@code change} applied to it, retrying if another
+	 * thread got there first, then writes whatever changed to the repository and listeners.
+	 * {@code change} may run more than once, so it must not have side effects.
+	 * @return The state that was replaced
+	 */
+	private SecurityState transition(UnaryOperator<SecurityState> change) {
+		while (true) {
+			SecurityState current = state();
+			SecurityState next = change.apply(current);
+			if (next == current) {
+				return current;
+			}
+			if (state.compareAndSet(current, next)) {
+				if (next.getAlarmStatus() != current.getAlarmStatus()) {
+					metrics.alarmTransition(current.getAlarmStatus(), next.getAlarmStatus());
+					publishAlarmStatus(next.getAlarmStatus());
+				}
+				if (next.getArmingStatus() != current.getArmingStatus()) {
+					publishArmingStatus(next.getArmingStatus());
+				}
+				return current;
+			}
+		}
+	}
+
+	/**
+	 * Writes the alarm status to the repository and listeners. Writes happen after the state swap, so a
+	 * thread that lost a race may write an older value; writing until the repository and listeners match
+	 * the latest state means the last writer always leaves the newest value behind.
+	 */
+	private void publishAlarmStatus(AlarmStatus status) {
+		AlarmStatus written;
+		do {
+			written = status;
+			long start = System.nanoTime();
+			securityRepository.setAlarmStatus(written);
+			metrics.repositoryWrites.recordSince(start);
+			statusListeners.alarmStatusChanged(written);
+			status = state().getAlarmStatus();
+		} while (status != written);
+	}
+
+	private void publishArmingStatus(ArmingStatus status) {
+		ArmingStatus written;
+		do {
+			written = status;
+			long start = System.nanoTime();
+			securityRepository.setArmingStatus(written);
+			metrics.repositoryWrites.recordSince(start);
+			status = state().getArmingStatus();
+		} while (status != written);
+	}
+
+	private SecurityState state() {
+		SecurityState current = state.get();
+		return current != null ? current : loadState();
+	}
+
+	/**
+	 * Builds the first state from the repository. Only ever runs once per service.
+	 */
+	private synchronized SecurityState loadState() {
+		SecurityState current = state.get();
+		if (current == null) {
+			AlarmStatus alarmStatus = securityRepository.getAlarmStatus();
+			ArmingStatus armingStatus = securityRepository.getArmingStatus();
+			zones.put(Sensor.DEFAULT_ZONE, new Zone(Sensor.DEFAULT_ZONE, armingStatus, alarmStatus, alarmTally));
+			for (Sensor sensor : securityRepository.getSensors()) {
+				Zone zone = zones.computeIfAbsent(sensor.getZone(), n -> new Zone(n, armingStatus, alarmStatus, alarmTally));
+				ActiveSensorIndex.Counted counted = ActiveSensorIndex.counted(sensor);
+				activeSensorIndex.update(sensor.getSensorId(), counted);
+				if (counted != null) {
+					zone.countActive(counted.sensorType, 1);
+				}
 			}
+			current = new SecurityState(alarmStatus, armingStatus, false);
+			state.set(current);
 		}
-		securityRepository.setArmingStatus(armingStatus);
-		statusListeners.forEach(StatusListener::sensorStatusChanged);
+		return current;
 	}
 }
@@ -0,0 +1,56 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+/**
+ * Immutable snapshot of the whole-house status: the alarm status aggregated from the zones, the
+ * arming status last set for the whole house and whether the camera shows a cat. The
+ * SecurityService swaps snapshots atomically, so listeners and the repository always see one
+ * consistent view. Per-zone state lives in {@link Zone}.
+ */
+final class SecurityState {
+
+	private final AlarmStatus alarmStatus;
+	private final ArmingStatus armingStatus;
+	private final boolean catDetected;
+
+	SecurityState(AlarmStatus alarmStatus, ArmingStatus armingStatus, boolean catDetected) {
+		this.alarmStatus = alarmStatus;
+		this.armingStatus = armingStatus;
+		this.catDetected = catDetected;
+	}
+
+	AlarmStatus getAlarmStatus() {
+		return alarmStatus;
+	}
+
+	ArmingStatus getArmingStatus() {
+		return armingStatus;
+	}
+
+	boolean isCatDetected() {
+		return catDetected;
+	}
+
+	SecurityState withAlarmStatus(AlarmStatus alarmStatus) {
+		if (alarmStatus == this.alarmStatus) {
+			return this;
+		}
+		return new SecurityState(alarmStatus, armingStatus, catDetected);
+	}
+
+	SecurityState withArmingStatus(ArmingStatus armingStatus) {
+		if (armingStatus == this.armingStatus) {
+			return this;
+		}
+		return new SecurityState(alarmStatus, armingStatus, catDetected);
+	}
+
+	SecurityState withCatDetected(boolean catDetected) {
+		if (catDetected == this.catDetected) {
+			return this;
+		}
+		return new SecurityState(alarmStatus, armingStatus, catDetected);
+	}
+}
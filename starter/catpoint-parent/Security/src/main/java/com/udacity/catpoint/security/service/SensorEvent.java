@@ -0,0 +1,25 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.Sensor;
+
+/**
+ * A single sensor activation change, as delivered in bulk by
+ * {@link SecurityService#applySensorEvents(java.util.Collection)}.
+ */
+public class SensorEvent {
+	private final Sensor sensor;
+	private final boolean active;
+
+	public SensorEvent(Sensor sensor, boolean active) {
+		this.sensor = sensor;
+		this.active = active;
+	}
+
+	public Sensor getSensor() {
+		return sensor;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+}
@@ -0,0 +1,107 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.LatencyHistogram;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers status updates to listeners on the executor each listener was registered with.
+ *
+ * Every listener has a mailbox that holds at most the latest alarm status, the latest cat result
+ * and a "sensors changed" flag, so updates that arrive while a listener is still busy replace the
+ * pending ones instead of queueing up behind it. A slow listener therefore only ever sees the most
+ * recent state and never holds up the thread producing the updates or the other listeners.
+ */
+class StatusListenerDispatcher {
+
+	private final List<Mailbox> mailboxes = new CopyOnWriteArrayList<>();
+	private final LatencyHistogram dispatchLatency;
+
+	/**
+	 * @param dispatchLatency Records how long each listener takes to handle one delivery
+	 */
+	StatusListenerDispatcher(LatencyHistogram dispatchLatency) {
+		this.dispatchLatency = dispatchLatency;
+	}
+
+	synchronized void add(StatusListener listener, Executor executor) {
+		if (mailboxes.stream().noneMatch(m -> m.listener.equals(listener))) {
+			mailboxes.add(new Mailbox(listener, executor, dispatchLatency));
+		}
+	}
+
+	void remove(StatusListener listener) {
+		mailboxes.removeIf(m -> m.listener.equals(listener));
+	}
+
+	void alarmStatusChanged(AlarmStatus status) {
+		for (Mailbox mailbox : mailboxes) {
+			mailbox.alarmStatus.set(status);
+			mailbox.schedule();
+		}
+	}
+
+	void catDetected(boolean catDetected) {
+		for (Mailbox mailbox : mailboxes) {
+			mailbox.catDetected.set(catDetected);
+			mailbox.schedule();
+		}
+	}
+
+	void sensorStatusChanged() {
+		for (Mailbox mailbox : mailboxes) {
+			mailbox.sensorsChanged.set(true);
+			mailbox.schedule();
+		}
+	}
+
+	private static class Mailbox implements Runnable {
+		private final StatusListener listener;
+		private final Executor executor;
+		private final LatencyHistogram dispatchLatency;
+		private final AtomicReference<AlarmStatus> alarmStatus = new AtomicReference<>();
+		private final AtomicReference<Boolean> catDetected = new AtomicReference<>();
+		private final AtomicBoolean sensorsChanged = new AtomicBoolean();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		Mailbox(StatusListener listener, Executor executor, LatencyHistogram dispatchLatency) {
+			this.listener = listener;
+			this.executor = executor;
+			this.dispatchLatency = dispatchLatency;
+		}
+
+		/**
+		 * Makes sure a delivery is pending. At most one delivery per listener is queued at a time.
+		 */
+		void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				executor.execute(this);
+			}
+		}
+
+		@Override
+		public void run() {
+			//clear first so updates arriving during delivery schedule another run
+			scheduled.set(false);
+			long start = System.nanoTime();
+			AlarmStatus status = alarmStatus.getAndSet(null);
+			if (status != null) {
+				listener.notify(status);
+			}
+			Boolean cat = catDetected.getAndSet(null);
+			if (cat != null) {
+				listener.catDetected(cat);
+			}
+			if (sensorsChanged.getAndSet(false)) {
+				listener.sensorStatusChanged();
+			}
+			dispatchLatency.recordSince(start);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Arming status, alarm sub-state and active sensor counts of one zone. Each zone is guarded by its
+ * own monitor: every method is synchronized, and {@link SecurityService} holds the zone's lock
+ * while it applies an alarm rule, so changes in different zones never wait for each other. The
+ * service never holds two zone locks at once.
+ *
+ * The number of zones in each alarm status is kept in a tally shared by all zones, so the
+ * whole-house alarm status can be read from it without visiting the zones.
+ */
+final class Zone {
+
+	private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+
+	private final String name;
+	private final AtomicIntegerArray alarmTally;
+	private ArmingStatus armingStatus;
+	private AlarmStatus alarmStatus;
+	private final int[] activeByType = new int[SensorType.values().length];
+	private int activeCount;
+
+	/**
+	 * @param alarmTally Number of zones per alarm status, indexed by {@link AlarmStatus#ordinal()}
+	 */
+	Zone(String name, ArmingStatus armingStatus, AlarmStatus alarmStatus, AtomicIntegerArray alarmTally) {
+		this.name = name;
+		this.alarmTally = alarmTally;
+		this.armingStatus = armingStatus;
+		setAlarmStatus(alarmStatus);
+	}
+
+	String getName() {
+		return name;
+	}
+
+	synchronized ArmingStatus getArmingStatus() {
+		return armingStatus;
+	}
+
+	synchronized void setArmingStatus(ArmingStatus armingStatus) {
+		this.armingStatus = armingStatus;
+	}
+
+	synchronized AlarmStatus getAlarmStatus() {
+		return alarmStatus;
+	}
+
+	/**
+	 * Changes the zone's alarm status and moves the zone between the tally's counts. The new status is
+	 * counted before the old one is released, so a reader of the tally may briefly see the zone in both
+	 * statuses but never in neither, which would read as NO_ALARM in the middle of an alarm.
+	 */
+	synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+		if (alarmStatus == this.alarmStatus) {
+			return;
+		}
+		if (alarmStatus != null) {
+			alarmTally.incrementAndGet(alarmStatus.ordinal());
+		}
+		if (this.alarmStatus != null) {
+			alarmTally.decrementAndGet(this.alarmStatus.ordinal());
+		}
+		this.alarmStatus = alarmStatus;
+	}
+
+	/**
+	 * Zones count their new status before releasing the old one, so the downward scan can only miss a
+	 * zone that is moving to a more severe status, and the upward scan that follows finds it there.
+	 * @param alarmTally Number of zones per alarm status, indexed by {@link AlarmStatus#ordinal()}
+	 * @return The most severe status any zone is in, or null if the tally is empty
+	 */
+	static AlarmStatus mostSevereAlarmStatus(AtomicIntegerArray alarmTally) {
+		int found = -1;
+		for (int i = ALARM_STATUSES.length - 1; i >= 0 && found < 0; i--) {
+			if (alarmTally.get(i) > 0) {
+				found = i;
+			}
+		}
+		for (int i = found + 1; i < ALARM_STATUSES.length; i++) {
+			if (alarmTally.get(i) > 0) {
+				found = i;
+			}
+		}
+		return found < 0 ? null : ALARM_STATUSES[found];
+	}
+
+	synchronized int getActiveCount() {
+		return activeCount;
+	}
+
+	synchronized int getActiveCount(SensorType sensorType) {
+		return activeByType[sensorType.ordinal()];
+	}
+
+	/**
+	 * @param delta 1 when a sensor of this type became active in the zone, -1 when one stopped counting
+	 */
+	synchronized void countActive(SensorType sensorType, int delta) {
+		activeByType[sensorType.ordinal()] += delta;
+		activeCount += delta;
+	}
+}
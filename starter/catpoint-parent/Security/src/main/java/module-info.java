@@ -3,7 +3,9 @@ module com.udacity.catpoint.security {
 	requires com.google.common;
 	requires com.google.gson;
 	requires java.prefs;
+	requires java.management;
 	requires com.udacity.catpoint.image;
 	requires miglayout.swing;
 	opens com.udacity.catpoint.security.data to com.google.gson;
+	exports com.udacity.catpoint.security.service to java.management; //metrics MXBean
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.JournalSecurityRepositoryImpl;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeadlessServerTest {
+
+	@TempDir
+	Path directory;
+
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+	private JournalSecurityRepositoryImpl repository;
+	private HeadlessServer server;
+
+	@BeforeEach
+	public void init() {
+		repository = new JournalSecurityRepositoryImpl(directory.resolve("journal"), 10_000);
+		SecurityService securityService = new SecurityService(repository, (image, confidenceThreshhold) -> true);
+		server = new HeadlessServer(securityService, new PrintStream(output, true, StandardCharsets.UTF_8));
+	}
+
+	@AfterEach
+	public void close() throws IOException {
+		repository.close();
+	}
+
+	@Test
+	public void run_unknownCommandThenValidOne_errorReportedAndNextCommandRun() throws IOException {
+		run("bogus",
+				"status");
+
+		assertEquals(List.of(
+				"error: Unknown command: bogus",
+				"DISARMED, NO_ALARM, 0 active sensors"), lines());
+	}
+
+	@Test
+	public void run_sensorsInZones_statusZonesAndSensorsListed() throws IOException {
+		run("add door Front door",
+				"add window@Kitchen Kitchen window",
+				"activate Nobody",
+				"arm away",
+				"activate Front door",
+				"status",
+				"zones",
+				"sensors");
+
+		assertEquals(List.of(
+				"error: No sensor named Nobody",
+				"alarm PENDING_ALARM",
+				"ARMED_AWAY, PENDING_ALARM, 1 active sensors",
+				"House: ARMED_AWAY, PENDING_ALARM, 1 active sensors",
+				"Kitchen: ARMED_AWAY, NO_ALARM, 0 active sensors",
+				"Front door DOOR House active",
+				"Kitchen window WINDOW Kitchen inactive"), lines());
+	}
+
+	@Test
+	public void run_badArguments_eachReportedAndServerKeepsRunning() throws IOException {
+		run("add door",
+				"add lamp Hall",
+				"arm night",
+				"remove Hall",
+				"image " + directory.resolve("missing.png"),
+				"disarm",
+				"status");
+
+		List<String> lines = lines();
+		assertEquals(6, lines.size(), lines.toString());
+		assertEquals("error: Usage: add <type>[@zone] <name>", lines.get(0));
+		assertTrue(lines.get(1).startsWith("error: "), lines.get(1));
+		assertEquals("error: Usage: arm home|away [zone]", lines.get(2));
+		assertEquals("error: No sensor named Hall", lines.get(3));
+		assertTrue(lines.get(4).startsWith("error: "), lines.get(4));
+		assertEquals("DISARMED, NO_ALARM, 0 active sensors", lines.get(5));
+	}
+
+	@Test
+	public void run_catImageWhileArmedHome_alarm() throws IOException {
+		Path image = directory.resolve("cat.png");
+		ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+
+		run("arm home",
+				"image " + image);
+
+		assertEquals(List.of(
+				"alarm ALARM",
+				"cat detected"), lines());
+	}
+
+	@Test
+	public void run_quit_laterCommandsIgnored() throws IOException {
+		run("# comment",
+				"",
+				"quit",
+				"status");
+
+		assertEquals(List.of(), lines());
+	}
+
+	private void run(String... script) throws IOException {
+		server.run(new BufferedReader(new StringReader(String.join("\n", script))));
+	}
+
+	private List<String> lines() {
+		String text = output.toString(StandardCharsets.UTF_8);
+		return text.isEmpty() ? List.of() : List.of(text.split("\\R"));
+	}
+}
@@ -0,0 +1,60 @@
+package com.udacity.catpoint.security.application;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoadGeneratorTest {
+
+	@Test
+	public void parse_noArguments_defaults() {
+		LoadGenerator.Options options = LoadGenerator.Options.parse(new String[0]);
+
+		assertEquals(30, options.durationSeconds);
+		assertEquals(50, options.activePercent);
+		assertEquals("fake", options.image);
+		assertEquals("journal", options.repository);
+		assertFalse(options.eventLoop);
+		assertFalse(options.help);
+	}
+
+	@Test
+	public void parse_separateAndJoinedValues_bothRead() {
+		LoadGenerator.Options options = LoadGenerator.Options.parse(new String[]{
+				"--duration", "5", "--sensors=200", "--event-loop", "--repository", "prefs-write-behind", "--image=aws"});
+
+		assertEquals(5, options.durationSeconds);
+		assertEquals(200, options.sensors);
+		assertTrue(options.eventLoop);
+		assertEquals("prefs-write-behind", options.repository);
+		assertEquals("aws", options.image);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"0", "100"})
+	public void parse_activePercentAtLimits_accepted(String percent) {
+		assertEquals(Integer.parseInt(percent),
+				LoadGenerator.Options.parse(new String[]{"--active-percent", percent}).activePercent);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"-1", "101", "half"})
+	public void parse_activePercentOutOfRange_rejected(String percent) {
+		assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[]{"--active-percent", percent}));
+	}
+
+	@Test
+	public void parse_invalidArguments_rejected() {
+		assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[]{"--duration", "0"}));
+		assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[]{"--sensors"}));
+		assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[]{"sensors", "10"}));
+		assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[]{"--speed", "10"}));
+		assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[]{"--image", "local"}));
+		assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[]{"--repository", "disk"}));
+	}
+}
@@ -0,0 +1,156 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.JTable;
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SensorTableModelTest {
+
+	private final List<String> activityChanges = new ArrayList<>();
+	private final SensorTableModel model = new SensorTableModel((sensor, active) -> activityChanges.add(sensor.getName() + "=" + active));
+	private final List<String> events = new ArrayList<>();
+	private final Sensor door = new Sensor("Door", SensorType.DOOR);
+	private final Sensor window = new Sensor("Window", SensorType.WINDOW);
+	private final Sensor motion = new Sensor("Motion", SensorType.MOTION);
+
+	@BeforeEach
+	public void listen() {
+		model.addTableModelListener(e -> events.add(describe(e)));
+	}
+
+	@Test
+	public void refresh_newSensors_insertedAsOneEvent() {
+		model.refresh(List.of(door, window, motion));
+
+		assertEquals(List.of("insert 0-2"), events);
+		assertEquals(List.of("Door", "Window", "Motion"), names());
+		assertEquals(SensorType.WINDOW, model.getValueAt(1, SensorTableModel.TYPE));
+		assertEquals(false, model.getValueAt(1, SensorTableModel.ACTIVE));
+	}
+
+	@Test
+	public void refresh_nothingChanged_noEvents() {
+		model.refresh(List.of(door, window));
+		events.clear();
+
+		model.refresh(List.of(door, window));
+
+		assertEquals(List.of(), events);
+	}
+
+	@Test
+	public void refresh_changedSensors_oneUpdateEventOverChangedRows() {
+		model.refresh(List.of(door, window, motion));
+		events.clear();
+		door.setActive(true);
+		motion.setName("Hall motion");
+
+		model.refresh(List.of(door, window, motion));
+
+		assertEquals(List.of("update 0-2"), events);
+		assertEquals(true, model.getValueAt(0, SensorTableModel.ACTIVE));
+		assertEquals("Hall motion", model.getValueAt(2, SensorTableModel.NAME));
+	}
+
+	@Test
+	public void refresh_missingSensors_removedWithoutReordering() {
+		Sensor garage = new Sensor("Garage", SensorType.DOOR);
+		model.refresh(List.of(door, window, motion, garage));
+		events.clear();
+
+		model.refresh(List.of(door, garage));
+
+		assertEquals(List.of("delete 1-2"), events);
+		assertEquals(List.of("Door", "Garage"), names());
+		garage.setActive(true);
+		model.sensorChanged(garage);
+		assertEquals(true, model.getValueAt(1, SensorTableModel.ACTIVE));
+	}
+
+	@Test
+	public void refresh_addedAndRemoved_bothApplied() {
+		model.refresh(List.of(door, window));
+		events.clear();
+
+		model.refresh(List.of(window, motion));
+
+		assertEquals(List.of("delete 0-0", "insert 1-1"), events);
+		assertEquals(List.of("Window", "Motion"), names());
+	}
+
+	@Test
+	public void sensorChanged_newThenChangedThenSame_insertThenUpdate() {
+		model.sensorChanged(door);
+		door.setActive(true);
+		model.sensorChanged(door);
+		model.sensorChanged(door);
+
+		assertEquals(List.of("insert 0-0", "update 0-0"), events);
+	}
+
+	@Test
+	public void sensorRemoved_middleRow_laterRowsShiftUp() {
+		model.refresh(List.of(door, window, motion));
+		events.clear();
+
+		model.sensorRemoved(window);
+		model.sensorRemoved(window);
+
+		assertEquals(List.of("delete 1-1"), events);
+		assertEquals(List.of("Door", "Motion"), names());
+		motion.setActive(true);
+		model.sensorChanged(motion);
+		assertEquals(List.of("delete 1-1", "update 1-1"), events);
+	}
+
+	/**
+	 * Removing a row must not move another sensor under the user's selection.
+	 */
+	@Test
+	public void sensorRemoved_otherRowSelected_selectionStaysOnSameSensor() {
+		JTable table = new JTable(model);
+		model.refresh(List.of(door, window, motion));
+		table.setRowSelectionInterval(2, 2);
+
+		model.sensorRemoved(door);
+
+		assertEquals(1, table.getSelectedRowCount());
+		assertSame(motion, model.getSensor(table.getSelectedRow()));
+	}
+
+	@Test
+	public void setValueAt_activeColumn_reportsToCallback() {
+		model.refresh(List.of(door));
+
+		model.setValueAt(true, 0, SensorTableModel.ACTIVE);
+		model.setValueAt("ignored", 0, SensorTableModel.NAME);
+
+		assertEquals(List.of("Door=true"), activityChanges);
+		assertTrue(model.isCellEditable(0, SensorTableModel.ACTIVE));
+		assertFalse(model.isCellEditable(0, SensorTableModel.NAME));
+	}
+
+	private List<String> names() {
+		List<String> names = new ArrayList<>();
+		for (int row = 0; row < model.getRowCount(); row++) {
+			names.add((String) model.getValueAt(row, SensorTableModel.NAME));
+		}
+		return names;
+	}
+
+	private static String describe(TableModelEvent e) {
+		String type = e.getType() == TableModelEvent.INSERT ? "insert" : e.getType() == TableModelEvent.DELETE ? "delete" : "update";
+		return type + " " + e.getFirstRow() + "-" + e.getLastRow();
+	}
+}
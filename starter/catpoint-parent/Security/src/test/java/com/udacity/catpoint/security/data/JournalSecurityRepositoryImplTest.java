@@ -0,0 +1,173 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JournalSecurityRepositoryImplTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void reopen_replaysJournal() throws IOException {
+		Sensor door = new Sensor("Front door", SensorType.DOOR);
+		Sensor window = new Sensor("Kitchen window", SensorType.WINDOW, "Kitchen");
+		Sensor motion = new Sensor("Hall", SensorType.MOTION);
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			repository.addSensor(door);
+			repository.addSensor(window);
+			repository.addSensor(motion);
+			window.setActive(true);
+			repository.updateSensor(window);
+			repository.removeSensor(motion);
+			repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+			repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+		}
+
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			Map<UUID, Sensor> sensors = sensorsById(repository);
+			assertEquals(2, sensors.size());
+			assertEquals("Front door", sensors.get(door.getSensorId()).getName());
+			assertTrue(sensors.get(window.getSensorId()).getActive());
+			assertEquals("Kitchen", sensors.get(window.getSensorId()).getZone());
+			assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+			assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+		}
+	}
+
+	@Test
+	public void append_snapshotIntervalReached_compactsAndClearsJournal() throws IOException {
+		Sensor door = new Sensor("Front door", SensorType.DOOR);
+		try (JournalSecurityRepositoryImpl repository = open(3)) {
+			repository.addSensor(door);
+			repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+			repository.setAlarmStatus(AlarmStatus.ALARM);
+		}
+
+		assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+		assertEquals(0, journal().getInt(0));
+		try (JournalSecurityRepositoryImpl repository = open(3)) {
+			assertEquals(1, repository.getSensors().size());
+			assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+			assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+		}
+	}
+
+	@Test
+	public void reopen_afterCompaction_replaysJournalOnTopOfSnapshot() throws IOException {
+		Sensor door = new Sensor("Front door", SensorType.DOOR);
+		Sensor window = new Sensor("Kitchen window", SensorType.WINDOW);
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			repository.addSensor(door);
+			repository.addSensor(window);
+			repository.compact();
+			repository.removeSensor(door);
+			repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+		}
+
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			Map<UUID, Sensor> sensors = sensorsById(repository);
+			assertEquals(1, sensors.size());
+			assertTrue(sensors.containsKey(window.getSensorId()));
+			assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+		}
+	}
+
+	@Test
+	public void reopen_recordLengthPastEnd_ignoresTornTail() throws IOException {
+		Sensor door = new Sensor("Front door", SensorType.DOOR);
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			repository.addSensor(door);
+		}
+		writeAtTail(ByteBuffer.allocate(Integer.BYTES).putInt(Integer.MAX_VALUE).flip());
+
+		Sensor window = new Sensor("Kitchen window", SensorType.WINDOW);
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			assertEquals(1, repository.getSensors().size());
+			repository.addSensor(window);
+		}
+
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			assertEquals(2, repository.getSensors().size());
+		}
+	}
+
+	/**
+	 * The torn record is longer than the record that overwrites it and holds what looks like an
+	 * arming record right after it, which must not be replayed.
+	 */
+	@Test
+	public void reopen_unknownRecordType_treatedAsEndAndOverwritten() throws IOException {
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			repository.addSensor(new Sensor("Front door", SensorType.DOOR));
+		}
+		byte[] armedAway = SecurityCodec.encode(ArmingStatus.ARMED_AWAY);
+		ByteBuffer torn = ByteBuffer.allocate(32)
+				.putInt(27).put((byte) 99).put(new byte[3])
+				.putInt(armedAway.length + 1).put((byte) 7).put(armedAway);
+		writeAtTail(torn.position(0));
+
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			assertEquals(1, repository.getSensors().size());
+			assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+			repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+		}
+
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			assertEquals(1, repository.getSensors().size());
+			assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+			assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+		}
+	}
+
+	@Test
+	public void reopen_noFiles_startsEmpty() throws IOException {
+		try (JournalSecurityRepositoryImpl repository = open(100)) {
+			assertTrue(repository.getSensors().isEmpty());
+			assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+			assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+		}
+		assertFalse(Files.exists(directory.resolve("snapshot.bin")));
+	}
+
+	private JournalSecurityRepositoryImpl open(int snapshotInterval) {
+		return new JournalSecurityRepositoryImpl(directory, snapshotInterval);
+	}
+
+	private static Map<UUID, Sensor> sensorsById(SecurityRepository repository) {
+		return repository.getSensors().stream().collect(Collectors.toMap(Sensor::getSensorId, Function.identity()));
+	}
+
+	private ByteBuffer journal() throws IOException {
+		return ByteBuffer.wrap(Files.readAllBytes(directory.resolve("journal.log")));
+	}
+
+	/**
+	 * Overwrites the journal right after its last complete record, as a crash during an append would.
+	 */
+	private void writeAtTail(ByteBuffer bytes) throws IOException {
+		ByteBuffer journal = journal();
+		int tail = 0;
+		for (int length = journal.getInt(tail); length > 0; length = journal.getInt(tail)) {
+			tail += Integer.BYTES + length;
+		}
+		try (FileChannel channel = FileChannel.open(directory.resolve("journal.log"), StandardOpenOption.WRITE)) {
+			channel.write(bytes, tail);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the preferences under java.util.prefs.userRoot, which the build points at the
+ * target directory.
+ */
+public class PretendDatabaseSecurityRepositoryImplTest {
+
+	private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+	private final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
+	private PretendDatabaseSecurityRepositoryImpl repository;
+
+	@BeforeEach
+	public void clearPreferences() throws BackingStoreException {
+		prefs.clear();
+		for (String child : prefs.childrenNames()) {
+			prefs.node(child).removeNode();
+		}
+	}
+
+	@AfterEach
+	public void shutdown() throws BackingStoreException {
+		if (repository != null) {
+			repository.shutdown();
+		}
+		clearPreferences();
+	}
+
+	@Test
+	public void writeThrough_addSensor_writtenImmediately() throws BackingStoreException {
+		repository = new PretendDatabaseSecurityRepositoryImpl();
+		Sensor sensor = new Sensor("Front door", SensorType.DOOR);
+
+		repository.addSensor(sensor);
+
+		assertNotNull(storedSensor(sensor));
+	}
+
+	@Test
+	public void writeBehind_belowThreshold_writtenOnlyByFlush() {
+		repository = new PretendDatabaseSecurityRepositoryImpl(NEVER, 100);
+		Sensor sensor = new Sensor("Front door", SensorType.DOOR);
+
+		repository.addSensor(sensor);
+		repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+		assertNull(storedSensor(sensor));
+		assertNull(prefs.getByteArray("ARMING", null));
+
+		repository.flush();
+
+		assertEquals(sensor.getSensorId(), SecurityCodec.decodeSensor(storedSensor(sensor)).getSensorId());
+		assertEquals(ArmingStatus.ARMED_HOME, SecurityCodec.decodeArmingStatus(prefs.getByteArray("ARMING", null)));
+		assertEquals(1, new PretendDatabaseSecurityRepositoryImpl().getSensors().size());
+	}
+
+	@Test
+	public void writeBehind_thresholdReached_flushedInBackground() throws InterruptedException {
+		repository = new PretendDatabaseSecurityRepositoryImpl(NEVER, 3);
+		Sensor last = new Sensor("Hall", SensorType.MOTION);
+
+		repository.addSensor(new Sensor("Front door", SensorType.DOOR));
+		repository.addSensor(new Sensor("Back door", SensorType.DOOR));
+		repository.addSensor(last);
+
+		awaitTrue(() -> storedSensor(last) != null);
+	}
+
+	@Test
+	public void writeBehind_intervalElapsed_flushedInBackground() throws InterruptedException {
+		repository = new PretendDatabaseSecurityRepositoryImpl(20, 100);
+
+		repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+		awaitTrue(() -> prefs.getByteArray("ALARM", null) != null);
+		assertEquals(AlarmStatus.PENDING_ALARM, SecurityCodec.decodeAlarmStatus(prefs.getByteArray("ALARM", null)));
+	}
+
+	@Test
+	public void writeBehind_repeatedChanges_coalescedIntoLatest() {
+		repository = new PretendDatabaseSecurityRepositoryImpl(NEVER, 100);
+		Sensor sensor = new Sensor("Front door", SensorType.DOOR);
+
+		repository.addSensor(sensor);
+		sensor.setActive(true);
+		repository.updateSensor(sensor);
+		repository.removeSensor(sensor);
+		repository.setAlarmStatus(AlarmStatus.ALARM);
+		repository.setAlarmStatus(AlarmStatus.NO_ALARM);
+		repository.flush();
+
+		assertNull(storedSensor(sensor));
+		assertEquals(AlarmStatus.NO_ALARM, SecurityCodec.decodeAlarmStatus(prefs.getByteArray("ALARM", null)));
+	}
+
+	@Test
+	public void shutdown_pendingChanges_written() {
+		repository = new PretendDatabaseSecurityRepositoryImpl(NEVER, 100);
+
+		repository.setAlarmStatus(AlarmStatus.ALARM);
+		repository.shutdown();
+
+		assertEquals(AlarmStatus.ALARM, SecurityCodec.decodeAlarmStatus(prefs.getByteArray("ALARM", null)));
+		assertDoesNotThrow(repository::shutdown);
+	}
+
+	@Test
+	public void migration_jsonSensors_convertedToRecords() throws BackingStoreException {
+		Sensor door = new Sensor("Front door", SensorType.DOOR);
+		Sensor motion = new Sensor("Hall", SensorType.MOTION, "Upstairs");
+		motion.setActive(true);
+		Sensor window = new Sensor("Kitchen window", SensorType.WINDOW);
+		prefs.put("SENSORS", new Gson().toJson(Set.of(door, motion, window)));
+
+		repository = new PretendDatabaseSecurityRepositoryImpl();
+
+		assertSensorsEqual(Set.of(door, motion, window), repository.getSensors());
+		assertFalse(Set.of(prefs.keys()).contains("SENSORS"));
+		assertNotNull(storedSensor(door));
+		assertNotNull(storedSensor(motion));
+		assertNotNull(storedSensor(window));
+		assertSensorsEqual(Set.of(door, motion, window), new PretendDatabaseSecurityRepositoryImpl().getSensors());
+	}
+
+	@Test
+	public void migration_statusStrings_convertedOnFirstRead() {
+		prefs.put("ALARM_STATUS", AlarmStatus.PENDING_ALARM.toString());
+		prefs.put("ARMING_STATUS", ArmingStatus.ARMED_AWAY.toString());
+
+		repository = new PretendDatabaseSecurityRepositoryImpl();
+
+		assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+		assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+		assertNull(prefs.get("ALARM_STATUS", null));
+		assertNull(prefs.get("ARMING_STATUS", null));
+		assertEquals(AlarmStatus.PENDING_ALARM, SecurityCodec.decodeAlarmStatus(prefs.getByteArray("ALARM", null)));
+		assertEquals(ArmingStatus.ARMED_AWAY, SecurityCodec.decodeArmingStatus(prefs.getByteArray("ARMING", null)));
+	}
+
+	@Test
+	public void migration_nothingStored_defaults() {
+		repository = new PretendDatabaseSecurityRepositoryImpl();
+
+		assertEquals(AlarmStatus.NO_ALARM, repository.getAlarmStatus());
+		assertEquals(ArmingStatus.DISARMED, repository.getArmingStatus());
+		assertEquals(0, repository.getSensors().size());
+		assertNull(prefs.getByteArray("ALARM", null));
+	}
+
+	private static void assertSensorsEqual(Set<Sensor> expected, Set<Sensor> actual) {
+		assertEquals(describe(expected), describe(actual));
+	}
+
+	private static Map<String, String> describe(Set<Sensor> sensors) {
+		Map<String, String> described = new TreeMap<>();
+		for (Sensor s : sensors) {
+			described.put(s.getSensorId().toString(),
+					s.getName() + " " + s.getSensorType() + " " + s.getZone() + " " + s.getActive());
+		}
+		return described;
+	}
+
+	private byte[] storedSensor(Sensor sensor) {
+		return prefs.node("sensor-records").getByteArray(sensor.getSensorId().toString(), null);
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "timed out waiting for the flusher");
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SecurityCodecTest {
+
+	/**
+	 * A sensor without a zone has an 18 byte body plus its name, so these name lengths put the body
+	 * length on either side of the one and two byte varint limits (127/128 and 16383/16384).
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0, 107, 108, 109, 16362, 16363, 16364})
+	public void encodeSensor_bodyLengthAtVarintBoundary_roundTrips(int nameLength) {
+		Sensor sensor = new Sensor("n".repeat(nameLength), SensorType.WINDOW);
+		sensor.setActive(true);
+
+		byte[] bytes = SecurityCodec.encode(sensor);
+
+		assertEquals(SecurityCodec.encodedSize(sensor), bytes.length);
+		assertSensorEquals(sensor, SecurityCodec.decodeSensor(bytes));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {97, 98, 99, 16352, 16353, 16354})
+	public void encodeSensor_zonedBodyLengthAtVarintBoundary_roundTrips(int zoneLength) {
+		Sensor sensor = new Sensor("Back door", SensorType.DOOR, "z".repeat(zoneLength));
+
+		assertSensorEquals(sensor, SecurityCodec.decodeSensor(SecurityCodec.encode(sensor)));
+	}
+
+	@Test
+	public void decodeSensor_consecutiveRecords_leavesBufferAfterEach() {
+		Sensor first = new Sensor("n".repeat(108), SensorType.MOTION);
+		Sensor second = new Sensor("Garage", SensorType.DOOR, "Garage");
+		ByteBuffer buffer = ByteBuffer.allocate(SecurityCodec.encodedSize(first) + SecurityCodec.encodedSize(second));
+		SecurityCodec.encode(first, buffer);
+		SecurityCodec.encode(second, buffer);
+		buffer.flip();
+
+		assertSensorEquals(first, SecurityCodec.decodeSensor(buffer));
+		assertSensorEquals(second, SecurityCodec.decodeSensor(buffer));
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void decodeSensor_noNameOrType_roundTrips() {
+		Sensor sensor = new Sensor();
+		sensor.setSensorId(UUID.randomUUID());
+		sensor.setActive(false);
+
+		Sensor decoded = SecurityCodec.decodeSensor(SecurityCodec.encode(sensor));
+
+		assertNull(decoded.getName());
+		assertNull(decoded.getSensorType());
+		assertEquals(sensor.getSensorId(), decoded.getSensorId());
+	}
+
+	@Test
+	public void decodeSensor_newerVersionWithExtraFields_skipsThem() {
+		Sensor sensor = new Sensor("Front door", SensorType.DOOR, "Porch");
+		Sensor next = new Sensor("Hall", SensorType.MOTION);
+		byte[] extra = {1, 2, 3};
+		ByteBuffer buffer = ByteBuffer.allocate(256);
+		writeWithExtraFields(sensor, extra, buffer);
+		SecurityCodec.encode(next, buffer);
+		buffer.flip();
+
+		assertSensorEquals(sensor, SecurityCodec.decodeSensor(buffer));
+		assertSensorEquals(next, SecurityCodec.decodeSensor(buffer));
+	}
+
+	@Test
+	public void decodeStatus_newerVersionWithExtraFields_skipsThem() {
+		ByteBuffer buffer = ByteBuffer.wrap(new byte[]{2, 3, 2, 9, 9, 2, 1, 1});
+
+		assertEquals(AlarmStatus.ALARM, SecurityCodec.decodeAlarmStatus(buffer));
+		assertEquals(ArmingStatus.ARMED_HOME, SecurityCodec.decodeArmingStatus(buffer));
+	}
+
+	@ParameterizedTest
+	@EnumSource(AlarmStatus.class)
+	public void encodeAlarmStatus_roundTrips(AlarmStatus status) {
+		assertEquals(status, SecurityCodec.decodeAlarmStatus(SecurityCodec.encode(status)));
+	}
+
+	@ParameterizedTest
+	@EnumSource(ArmingStatus.class)
+	public void encodeArmingStatus_roundTrips(ArmingStatus status) {
+		assertEquals(status, SecurityCodec.decodeArmingStatus(SecurityCodec.encode(status)));
+	}
+
+	@Test
+	public void decodeSensor_unknownSensorTypeCode_rejected() {
+		byte[] bytes = SecurityCodec.encode(new Sensor("Door", SensorType.DOOR));
+		bytes[2 + 2 * Long.BYTES] = 3;
+
+		assertThrows(IllegalArgumentException.class, () -> SecurityCodec.decodeSensor(bytes));
+	}
+
+	@Test
+	public void decodeStatus_unknownCode_rejected() {
+		assertThrows(IllegalArgumentException.class, () -> SecurityCodec.decodeAlarmStatus(new byte[]{1, 1, 3}));
+		assertThrows(IllegalArgumentException.class, () -> SecurityCodec.decodeArmingStatus(new byte[]{1, 1, 3}));
+	}
+
+	@Test
+	public void decode_unversionedOrTruncated_rejected() {
+		byte[] bytes = SecurityCodec.encode(new Sensor("Door", SensorType.DOOR));
+		byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+
+		assertThrows(IllegalArgumentException.class, () -> SecurityCodec.decodeSensor(truncated));
+		assertThrows(IllegalArgumentException.class, () -> SecurityCodec.decodeAlarmStatus(new byte[]{0, 1, 0}));
+		assertThrows(IllegalArgumentException.class, () -> SecurityCodec.decodeArmingStatus(new byte[]{1, 0}));
+	}
+
+	/**
+	 * Writes the sensor the way a later version would: a higher version and more fields after the
+	 * version 1 body.
+	 */
+	private static void writeWithExtraFields(Sensor sensor, byte[] extra, ByteBuffer out) {
+		ByteBuffer current = ByteBuffer.wrap(SecurityCodec.encode(sensor));
+		current.get();
+		int body = current.get();
+		assertTrue(body >= 0 && body + extra.length < 128, "test sensor must have a one byte length");
+		out.put((byte) (SecurityCodec.VERSION + 1));
+		out.put((byte) (body + extra.length));
+		out.put(current);
+		out.put(extra);
+	}
+
+	private static void assertSensorEquals(Sensor expected, Sensor actual) {
+		assertEquals(expected.getSensorId(), actual.getSensorId());
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getSensorType(), actual.getSensorType());
+		assertEquals(expected.getActive(), actual.getActive());
+		assertEquals(expected.getZone(), actual.getZone());
+	}
+}
@@ -0,0 +1,245 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SensorStoreTest {
+
+	private final SensorStore store = new SensorStore();
+
+	@Test
+	public void put_newSensor_fieldsStored() {
+		Sensor sensor = new Sensor("Back door", SensorType.DOOR, "Garage");
+		sensor.setActive(true);
+
+		int slot = store.put(sensor);
+
+		assertEquals(0, slot);
+		assertEquals(1, store.size());
+		assertEquals(slot, store.slotOf(sensor.getSensorId()));
+		assertEquals(sensor.getSensorId(), store.getSensorId(slot));
+		assertEquals("Back door", store.getName(slot));
+		assertEquals("Garage", store.getZone(slot));
+		assertEquals(SensorType.DOOR, store.getSensorType(slot));
+		assertTrue(store.isActive(slot));
+		assertEquals(1, store.getActiveCount(SensorType.DOOR));
+		Sensor copy = store.toSensor(slot);
+		assertEquals(sensor, copy);
+		assertEquals("Garage", copy.getZone());
+	}
+
+	@Test
+	public void put_defaultZone_storedAsNoZone() {
+		int named = store.put(new Sensor("Hall", SensorType.MOTION, Sensor.DEFAULT_ZONE));
+		int unnamed = store.put(new Sensor("Porch", SensorType.MOTION));
+
+		assertEquals(Sensor.DEFAULT_ZONE, store.getZone(named));
+		assertEquals(Sensor.DEFAULT_ZONE, store.getZone(unnamed));
+	}
+
+	@Test
+	public void put_existingId_overwritesSameSlot() {
+		Sensor sensor = new Sensor("Window", SensorType.WINDOW);
+		sensor.setActive(true);
+		int slot = store.put(sensor);
+
+		sensor.setName("Kitchen window");
+		sensor.setSensorType(SensorType.DOOR);
+		sensor.setZone("Kitchen");
+
+		assertEquals(slot, store.put(sensor));
+		assertEquals(1, store.size());
+		assertEquals("Kitchen window", store.getName(slot));
+		assertEquals("Kitchen", store.getZone(slot));
+		assertEquals(0, store.getActiveCount(SensorType.WINDOW));
+		assertEquals(1, store.getActiveCount(SensorType.DOOR));
+		assertEquals(1, store.getActiveCount());
+	}
+
+	@Test
+	public void setActive_changes_countsFollow() {
+		int door = store.put(new Sensor("Door", SensorType.DOOR));
+		int motion = store.put(new Sensor("Motion", SensorType.MOTION));
+
+		assertFalse(store.setActive(door, true));
+		assertTrue(store.setActive(door, true));
+		store.setActive(motion, true);
+		store.setActive(door, false);
+
+		assertEquals(1, store.getActiveCount());
+		assertEquals(0, store.getActiveCount(SensorType.DOOR));
+		assertEquals(1, store.getActiveCount(SensorType.MOTION));
+	}
+
+	@Test
+	public void remove_middleSlot_lastSensorMovedIntoGap() {
+		Sensor first = new Sensor("First", SensorType.DOOR);
+		Sensor middle = new Sensor("Middle", SensorType.WINDOW);
+		Sensor last = new Sensor("Last", SensorType.MOTION);
+		middle.setActive(true);
+		last.setActive(true);
+		store.put(first);
+		store.put(middle);
+		store.put(last);
+
+		assertTrue(store.remove(middle.getSensorId()));
+
+		assertEquals(2, store.size());
+		assertEquals(-1, store.slotOf(middle.getSensorId()));
+		assertEquals(1, store.slotOf(last.getSensorId()));
+		assertEquals("Last", store.getName(1));
+		assertTrue(store.isActive(1));
+		assertEquals(1, store.getActiveCount());
+		assertEquals(0, store.getActiveCount(SensorType.WINDOW));
+		assertEquals(-1, store.nextActive(2));
+		assertFalse(store.remove(middle.getSensorId()));
+	}
+
+	@Test
+	public void nextActive_walk_visitsActiveSlotsOnly() {
+		for (int i = 0; i < 10; i++) {
+			Sensor sensor = new Sensor("Sensor " + i, SensorType.MOTION);
+			sensor.setActive(i % 3 == 0);
+			store.put(sensor);
+		}
+
+		List<Integer> visited = new ArrayList<>();
+		for (int slot = store.nextActive(0); slot >= 0; slot = store.nextActive(slot + 1)) {
+			visited.add(slot);
+		}
+
+		assertEquals(List.of(0, 3, 6, 9), visited);
+	}
+
+	@Test
+	public void put_beyondInitialCapacity_grows() {
+		SensorStore small = new SensorStore(1);
+		List<Sensor> sensors = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			Sensor sensor = new Sensor("Sensor " + i, SensorType.values()[i % 3]);
+			sensors.add(sensor);
+			small.put(sensor);
+		}
+
+		assertEquals(1000, small.size());
+		for (int i = 0; i < sensors.size(); i++) {
+			int slot = small.slotOf(sensors.get(i).getSensorId());
+			assertEquals(i, slot);
+			assertEquals("Sensor " + i, small.getName(slot));
+		}
+	}
+
+	/**
+	 * Ids whose halves are equal all hash to the same entry, so they form one probe run. Removing from
+	 * the middle of the run must keep every later id reachable.
+	 */
+	@Test
+	public void remove_fromCollidingRun_restStillFound() {
+		for (long i = 1; i <= 8; i++) {
+			store.put(i, i, "Sensor " + i, null, SensorType.DOOR, false);
+		}
+
+		assertTrue(store.remove(3, 3));
+		assertTrue(store.remove(1, 1));
+
+		for (long i = 1; i <= 8; i++) {
+			int slot = store.slotOf(i, i);
+			assertEquals(i == 1 || i == 3, slot < 0, "id " + i);
+			if (slot >= 0) {
+				assertEquals("Sensor " + i, store.getName(slot));
+			}
+		}
+		assertEquals(6, store.size());
+	}
+
+	/**
+	 * A run that reaches the last index entry wraps round to the first. Removing its head must leave an
+	 * entry that wrapped past its home where it is, not move it before its home.
+	 */
+	@Test
+	public void remove_fromRunWrappingIndexEnd_restStillFound() {
+		SensorStore wrapping = new SensorStore(4); //index of 8 entries until it grows
+		long head = highWithHome(8, 6);
+		long tail = highWithHome(8, 7);
+		wrapping.put(head, 0, "Head", null, SensorType.WINDOW, false);      //entry 6
+		wrapping.put(tail, 0, "Tail", null, SensorType.WINDOW, false);      //entry 7
+		wrapping.put(tail ^ 1, 1, "Wrapped", null, SensorType.WINDOW, false); //home 7, entry 0
+		wrapping.put(highWithHome(8, 3), 0, "Other", null, SensorType.WINDOW, false); //refills the removed slot
+
+		assertTrue(wrapping.remove(head, 0));
+
+		assertEquals("Tail", wrapping.getName(wrapping.slotOf(tail, 0)));
+		assertEquals("Wrapped", wrapping.getName(wrapping.slotOf(tail ^ 1, 1)));
+		assertEquals(-1, wrapping.slotOf(head, 0));
+	}
+
+	/**
+	 * Random puts and removes over few ids, names and zones, so ids collide in the index and names are
+	 * released and reused, checked against a map after every step.
+	 */
+	@Test
+	public void putAndRemove_random_matchesMap() {
+		Random random = new Random(7);
+		String[] names = {"Door", "Window", "Motion", "Hall"};
+		String[] zones = {null, "Garage", "Attic", Sensor.DEFAULT_ZONE};
+		Map<Long, Sensor> expected = new HashMap<>();
+		for (int step = 0; step < 5000; step++) {
+			long id = random.nextInt(64);
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(id) != null, store.remove(id, id & 7), "remove " + id);
+			} else {
+				Sensor sensor = new Sensor(names[random.nextInt(names.length)], SensorType.values()[random.nextInt(3)],
+						zones[random.nextInt(zones.length)]);
+				sensor.setSensorId(new UUID(id, id & 7));
+				sensor.setActive(random.nextBoolean());
+				expected.put(id, sensor);
+				store.put(sensor);
+			}
+			assertEquals(expected.size(), store.size());
+		}
+
+		int active = 0;
+		for (Sensor sensor : expected.values()) {
+			int slot = store.slotOf(sensor.getSensorId());
+			assertEquals(sensor.getName(), store.getName(slot));
+			assertEquals(sensor.getZone(), store.getZone(slot));
+			assertEquals(sensor.getSensorType(), store.getSensorType(slot));
+			assertEquals(sensor.getActive(), store.isActive(slot));
+			active += sensor.getActive() ? 1 : 0;
+		}
+		assertEquals(active, store.getActiveCount());
+		assertEquals(expected.size(), store.toSensors().size());
+	}
+
+	@Test
+	public void invalidArguments_rejected() {
+		assertThrows(IllegalArgumentException.class, () -> new SensorStore(0));
+		assertThrows(IndexOutOfBoundsException.class, () -> store.getName(0));
+		store.put(new Sensor("Door", SensorType.DOOR));
+		assertThrows(IndexOutOfBoundsException.class, () -> store.isActive(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> store.setActive(-1, true));
+	}
+
+	/**
+	 * @return An id high half that, with a low half of 0, hashes to this entry of an index this long
+	 */
+	private static long highWithHome(int indexLength, int home) {
+		for (long high = 0; ; high++) {
+			long h = high * 0x9E3779B97F4A7C15L;
+			if (((int) (h ^ (h >>> 32)) & (indexLength - 1)) == home) {
+				return high;
+			}
+		}
+	}
+}
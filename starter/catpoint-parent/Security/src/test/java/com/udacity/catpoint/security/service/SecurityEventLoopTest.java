@@ -0,0 +1,140 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SecurityEventLoopTest {
+
+	private final RecordingSecurityService securityService = new RecordingSecurityService();
+
+	@Test
+	public void publish_mixedEvents_appliedInOrder() throws InterruptedException {
+		SecurityEventLoop eventLoop = new SecurityEventLoop(securityService, 8);
+		Sensor door = new Sensor("Front door", SensorType.DOOR);
+
+		eventLoop.publishArmingStatus(ArmingStatus.ARMED_HOME);
+		eventLoop.publishSensorChange(door, true);
+		eventLoop.publishImageResult(true);
+		eventLoop.publishSensorChange(door, false);
+		eventLoop.close();
+
+		assertEquals(List.of("ARMED_HOME", "Front door=true", "cat=true", "Front door=false"), securityService.events);
+	}
+
+	@Test
+	public void publish_moreEventsThanCapacity_allApplied() throws InterruptedException {
+		SecurityEventLoop eventLoop = new SecurityEventLoop(securityService, 4);
+		Sensor door = new Sensor("Front door", SensorType.DOOR);
+
+		for (int i = 0; i < 1000; i++) {
+			eventLoop.publishSensorChange(door, i % 2 == 0);
+		}
+		eventLoop.close();
+
+		assertEquals(1000, securityService.events.size());
+		assertEquals("Front door=false", securityService.events.get(999));
+	}
+
+	@Test
+	public void publish_afterClose_rejected() throws InterruptedException {
+		SecurityEventLoop eventLoop = new SecurityEventLoop(securityService, 8);
+		eventLoop.close();
+
+		assertThrows(IllegalStateException.class, () -> eventLoop.publishArmingStatus(ArmingStatus.DISARMED));
+		assertEquals(0, securityService.events.size());
+	}
+
+	/**
+	 * Publishers keep going while the loop closes, on a ring small enough to fill up: every publish
+	 * that was not rejected must have been applied, and no publisher may be left spinning.
+	 */
+	@Test
+	public void close_whilePublishing_appliesEveryAcceptedEvent() throws InterruptedException {
+		SecurityEventLoop eventLoop = new SecurityEventLoop(securityService, 2);
+		AtomicInteger accepted = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(4);
+		List<Thread> publishers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Sensor sensor = new Sensor("Sensor " + t, SensorType.MOTION);
+			Thread publisher = new Thread(() -> {
+				started.countDown();
+				try {
+					for (boolean active = true; ; active = !active) {
+						eventLoop.publishSensorChange(sensor, active);
+						accepted.incrementAndGet();
+					}
+				} catch (IllegalStateException e) {
+					//closed
+				}
+			});
+			publisher.start();
+			publishers.add(publisher);
+		}
+		started.await();
+		Thread.sleep(20);
+
+		eventLoop.close();
+		for (Thread publisher : publishers) {
+			publisher.join(5000);
+			assertEquals(Thread.State.TERMINATED, publisher.getState());
+		}
+
+		assertEquals(accepted.get(), securityService.events.size());
+	}
+
+	@Test
+	public void applySensorBatch_releasesSensorsAfterwards() throws InterruptedException {
+		SecurityEventLoop eventLoop = new SecurityEventLoop(securityService, 8);
+
+		for (int i = 0; i < 5; i++) {
+			eventLoop.publishSensorChange(new Sensor("Sensor " + i, SensorType.WINDOW), true);
+		}
+		eventLoop.close();
+
+		for (Sensor sensor : securityService.batchSensors) {
+			assertNull(sensor);
+		}
+	}
+
+	/**
+	 * Records what the event loop applies instead of applying it. Only called from the writer thread,
+	 * and only read after the loop is closed.
+	 */
+	private static class RecordingSecurityService extends SecurityService {
+		final List<String> events = new ArrayList<>();
+		Sensor[] batchSensors = new Sensor[0];
+
+		RecordingSecurityService() {
+			super(null, null);
+		}
+
+		@Override
+		void applySensorEvents(Sensor[] sensors, boolean[] active, int count) {
+			batchSensors = sensors;
+			for (int i = 0; i < count; i++) {
+				events.add(sensors[i].getName() + "=" + active[i]);
+			}
+		}
+
+		@Override
+		public void setArmingStatus(ArmingStatus armingStatus) {
+			events.add(armingStatus.toString());
+		}
+
+		@Override
+		void catDetected(Boolean cat) {
+			events.add("cat=" + cat);
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.JournalSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives one service from several threads against a real repository, then checks that the
+ * repository, the listener and the active counts all end on the same state. Each sensor thread
+ * owns its sensors, as the UI and the event loop do; zones are shared between the threads.
+ */
+public class SecurityServiceConcurrencyTest {
+
+	private static final int THREADS = 4;
+	private static final int SENSORS_PER_THREAD = 8;
+	private static final int ROUNDS = 400;
+	private static final String UPSTAIRS = "Upstairs";
+
+	@TempDir
+	Path directory;
+
+	private JournalSecurityRepositoryImpl repository;
+	private SecurityService securityService;
+	private final RecordingListener listener = new RecordingListener();
+	private final ExecutorService listenerExecutor = Executors.newSingleThreadExecutor();
+	private final List<List<Sensor>> sensorsByThread = new ArrayList<>();
+
+	@BeforeEach
+	public void init() {
+		repository = new JournalSecurityRepositoryImpl(directory, 10_000);
+		securityService = new SecurityService(repository, new FakeImageService());
+		securityService.addStatusListener(listener, listenerExecutor);
+		for (int t = 0; t < THREADS; t++) {
+			List<Sensor> sensors = new ArrayList<>();
+			for (int i = 0; i < SENSORS_PER_THREAD; i++) {
+				Sensor sensor = new Sensor("Sensor " + t + "-" + i, SensorType.values()[i % SensorType.values().length],
+						i % 2 == 0 ? Sensor.DEFAULT_ZONE : UPSTAIRS);
+				securityService.addSensor(sensor);
+				sensors.add(sensor);
+			}
+			sensorsByThread.add(sensors);
+		}
+	}
+
+	@AfterEach
+	public void close() throws IOException {
+		listenerExecutor.shutdownNow();
+		repository.close();
+	}
+
+	@Test
+	public void changeSensorActivationStatus_manyThreads_countsAndRepositoryMatchSensors() throws InterruptedException {
+		securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+		List<Runnable> tasks = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			List<Sensor> sensors = sensorsByThread.get(t);
+			Random random = new Random(t);
+			tasks.add(() -> {
+				for (int round = 0; round < ROUNDS; round++) {
+					Sensor sensor = sensors.get(random.nextInt(sensors.size()));
+					securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+				}
+				setFinalActivation(sensors);
+			});
+		}
+
+		runConcurrently(tasks);
+
+		assertSensorsMatch();
+		assertAlarmStatusPublished();
+	}
+
+	/**
+	 * Arming resets active sensors while other threads are changing them. Once arming stops, each
+	 * thread sets its sensors one last time, so everything must settle on that final pass.
+	 */
+	@Test
+	public void setArmingStatus_whileSensorsChange_endsOnLastArmingStatus() throws InterruptedException {
+		CountDownLatch armingDone = new CountDownLatch(1);
+		List<Runnable> tasks = new ArrayList<>();
+		tasks.add(() -> {
+			ArmingStatus[] statuses = ArmingStatus.values();
+			for (int round = 0; round < ROUNDS; round++) {
+				securityService.setArmingStatus(statuses[round % statuses.length]);
+			}
+			securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+			armingDone.countDown();
+		});
+		for (int t = 0; t < THREADS; t++) {
+			List<Sensor> sensors = sensorsByThread.get(t);
+			Random random = new Random(t);
+			tasks.add(() -> {
+				while (armingDone.getCount() > 0) {
+					Sensor sensor = sensors.get(random.nextInt(sensors.size()));
+					securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+				}
+				setFinalActivation(sensors);
+			});
+		}
+
+		runConcurrently(tasks);
+
+		assertEquals(ArmingStatus.ARMED_HOME, securityService.getArmingStatus());
+		assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+		for (String zone : securityService.getZones()) {
+			assertEquals(ArmingStatus.ARMED_HOME, securityService.getArmingStatus(zone));
+		}
+		assertSensorsMatch();
+		assertAlarmStatusPublished();
+	}
+
+	@Test
+	public void setAlarmStatus_manyThreads_repositoryAndListenerEndOnState() throws InterruptedException {
+		List<Runnable> tasks = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Random random = new Random(t);
+			tasks.add(() -> {
+				for (int round = 0; round < ROUNDS; round++) {
+					securityService.setAlarmStatus(AlarmStatus.values()[random.nextInt(AlarmStatus.values().length)]);
+				}
+			});
+		}
+
+		runConcurrently(tasks);
+
+		assertAlarmStatusPublished();
+	}
+
+	/**
+	 * Each round every thread raises its own zone to alarm or clears it, all at once, so the whole-house
+	 * status is recomputed from zone counts that other threads are changing at the same time. Between
+	 * rounds, with every thread waiting, the whole-house status must be the most severe zone status.
+	 */
+	@Test
+	public void zoneAlarms_flippedByManyThreads_wholeHouseFollowsMostSevereZone() throws InterruptedException {
+		List<String> mismatches = new CopyOnWriteArrayList<>();
+		CyclicBarrier roundEnd = new CyclicBarrier(THREADS, () -> {
+			AlarmStatus mostSevere = AlarmStatus.NO_ALARM;
+			for (String zone : securityService.getZones()) {
+				AlarmStatus status = securityService.getAlarmStatus(zone);
+				if (status.ordinal() > mostSevere.ordinal()) {
+					mostSevere = status;
+				}
+			}
+			if (securityService.getAlarmStatus() != mostSevere) {
+				mismatches.add(securityService.getAlarmStatus() + " while the most severe zone is " + mostSevere);
+			}
+		});
+		List<Runnable> tasks = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			String zone = "Zone " + t;
+			Sensor sensor = new Sensor("Zone sensor " + t, SensorType.MOTION, zone);
+			securityService.addSensor(sensor);
+			Random random = new Random(t);
+			tasks.add(() -> {
+				for (int round = 0; round < ROUNDS; round++) {
+					if (random.nextBoolean()) {
+						securityService.setArmingStatus(zone, ArmingStatus.ARMED_AWAY);
+						securityService.changeSensorActivationStatus(sensor, true);
+						securityService.changeSensorActivationStatus(sensor, true);
+					} else {
+						securityService.setArmingStatus(zone, ArmingStatus.DISARMED);
+					}
+					try {
+						roundEnd.await();
+					} catch (InterruptedException | BrokenBarrierException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			});
+		}
+
+		runConcurrently(tasks);
+
+		assertEquals(List.of(), mismatches);
+		assertAlarmStatusPublished();
+	}
+
+	/**
+	 * Activates every third sensor and deactivates the rest in one batch.
+	 */
+	private void setFinalActivation(List<Sensor> sensors) {
+		List<SensorEvent> events = new ArrayList<>();
+		for (int i = 0; i < sensors.size(); i++) {
+			events.add(new SensorEvent(sensors.get(i), i % 3 == 0));
+		}
+		securityService.applySensorEvents(events);
+	}
+
+	private void assertSensorsMatch() {
+		Set<Sensor> stored = repository.getSensors();
+		assertEquals(THREADS * SENSORS_PER_THREAD, stored.size());
+		int active = 0;
+		for (Sensor sensor : stored) {
+			int index = Integer.parseInt(sensor.getName().substring(sensor.getName().indexOf('-') + 1));
+			assertEquals(index % 3 == 0, sensor.getActive(), sensor.getName());
+			if (sensor.getActive()) {
+				active++;
+			}
+		}
+		assertEquals(active, securityService.getActiveSensorCount());
+		for (SensorType type : SensorType.values()) {
+			assertEquals(stored.stream().filter(s -> s.getActive() && s.getSensorType() == type).count(),
+					securityService.getActiveSensorCount(type), type.toString());
+		}
+		for (String zone : List.of(Sensor.DEFAULT_ZONE, UPSTAIRS)) {
+			assertEquals(stored.stream().filter(s -> s.getActive() && s.getZone().equals(zone)).count(),
+					securityService.getActiveSensorCount(zone), zone);
+		}
+	}
+
+	private void assertAlarmStatusPublished() throws InterruptedException {
+		listenerExecutor.shutdown();
+		assertTrue(listenerExecutor.awaitTermination(5, TimeUnit.SECONDS), "listener deliveries did not finish");
+		assertEquals(securityService.getAlarmStatus(), repository.getAlarmStatus());
+		assertEquals(securityService.getAlarmStatus(), listener.alarmStatus);
+	}
+
+	private static void runConcurrently(List<Runnable> tasks) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (Runnable task : tasks) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+					task.run();
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join(TimeUnit.SECONDS.toMillis(30));
+			assertFalse(thread.isAlive(), "worker did not finish");
+		}
+		if (!failures.isEmpty()) {
+			throw new AssertionError(failures.get(0));
+		}
+	}
+
+	private static class RecordingListener implements StatusListener {
+		volatile AlarmStatus alarmStatus;
+
+		@Override
+		public void notify(AlarmStatus status) {
+			alarmStatus = status;
+		}
+
+		@Override
+		public void catDetected(boolean catDetected) {
+		}
+
+		@Override
+		public void sensorStatusChanged() {
+		}
+	}
+}
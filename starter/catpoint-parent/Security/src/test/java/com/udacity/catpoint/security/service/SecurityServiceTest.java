@@ -2,6 +2,7 @@ package com.udacity.catpoint.security.service;
 
 import com.udacity.catpoint.image.service.AwsImageService;
 import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.LazyImageService;
 import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.*;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,11 +15,18 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -187,6 +195,23 @@ public class SecurityServiceTest {
 		}
 	}
 
+	/**
+	 * Arming resets every active sensor with one repository write and one notification.
+	 */
+	@Test
+	public void sensorStatus_armedWithActiveSensors_singlePersistAndNotify() {
+		when(securityRepository.getSensors()).thenReturn(getAllSensors(3, true));
+		when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+		securityService.addStatusListener(statusListener);
+
+		securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+		verify(securityRepository, times(1)).updateSensors(argThat(sensors -> sensors.size() == 3));
+		verify(securityRepository, never()).updateSensor(any(Sensor.class));
+		verify(statusListener, times(1)).sensorStatusChanged();
+		assertFalse(securityService.hasActiveSensors());
+	}
+
 	/**
 	 * Test 11: If the system is armed-home while the camera shows a cat, set the alarm status to alarm.
 	 * Tips: Put the system as disarmed, scan a picture until it detects a cat after that, make it armed, it should make the system in the ALARM state.
@@ -214,4 +239,203 @@ public class SecurityServiceTest {
 		securityService.changeSensorActivationStatus(sensor);
 		verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.PENDING_ALARM);
 	}
+
+	/**
+	 * Active sensor counts follow sensor activation without scanning the repository again.
+	 */
+	@Test
+	public void activeSensors_activateThenDeactivateSensor_countsUpdated() {
+		when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+		securityService.changeSensorActivationStatus(sensor, true);
+		assertTrue(securityService.hasActiveSensors());
+		assertEquals(1, securityService.getActiveSensorCount(SensorType.DOOR));
+		assertEquals(0, securityService.getActiveSensorCount(SensorType.WINDOW));
+
+		securityService.changeSensorActivationStatus(sensor, false);
+		assertFalse(securityService.hasActiveSensors());
+		verify(securityRepository, times(1)).getSensors();
+	}
+
+	/**
+	 * A burst of sensor events walks the alarm state machine but persists and notifies once.
+	 */
+	@Test
+	public void sensorEvents_twoActivationsWhileArmed_singlePersistAndNotify() {
+		when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+		when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+		securityService.addStatusListener(statusListener);
+		Sensor window = new Sensor("Window", SensorType.WINDOW);
+
+		securityService.applySensorEvents(List.of(new SensorEvent(sensor, true), new SensorEvent(window, true)));
+
+		verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+		verify(securityRepository, times(1)).updateSensors(anyCollection());
+		verify(securityRepository, never()).updateSensor(any(Sensor.class));
+		verify(statusListener, times(1)).notify(AlarmStatus.ALARM);
+		verify(statusListener, times(1)).sensorStatusChanged();
+	}
+
+	/**
+	 * Alarm updates queued behind a busy listener are coalesced into the latest one.
+	 */
+	@Test
+	public void statusListener_deliveryPending_onlyLatestAlarmStatusDelivered() {
+		List<Runnable> pending = new ArrayList<>();
+		securityService.addStatusListener(statusListener, pending::add);
+		securityService.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+		securityService.setAlarmStatus(AlarmStatus.ALARM);
+		assertEquals(1, pending.size());
+
+		pending.get(0).run();
+		verify(statusListener, times(1)).notify(AlarmStatus.ALARM);
+		verify(statusListener, never()).notify(AlarmStatus.PENDING_ALARM);
+	}
+
+	/**
+	 * A scan result that arrives after a newer image was submitted is ignored.
+	 */
+	@Test
+	public void processImageAsync_olderScanFinishesLast_olderResultIgnored() {
+		CompletableFuture<Boolean> olderScan = new CompletableFuture<>();
+		CompletableFuture<Boolean> newerScan = new CompletableFuture<>();
+		when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+		when(fakeImageService.imageContainsCatAsync(any(), anyFloat())).thenReturn(olderScan, newerScan);
+		BufferedImage img = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+
+		securityService.processImageAsync(img);
+		securityService.processImageAsync(img);
+		newerScan.complete(false);
+		olderScan.complete(true);
+
+		verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.NO_ALARM);
+		verify(securityRepository, never()).setAlarmStatus(AlarmStatus.ALARM);
+	}
+
+	/**
+	 * An unchanged frame is not sent to the image service again.
+	 */
+	@Test
+	public void processImage_unchangedFrame_notClassifiedAgain() {
+		securityService.setFrameGate(new FrameDifferenceGate(0.05));
+		when(fakeImageService.imageContainsCat(any(), anyFloat())).thenReturn(false);
+		BufferedImage emptyRoom = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+
+		securityService.processImage(emptyRoom);
+		securityService.processImage(emptyRoom);
+		verify(fakeImageService, times(1)).imageContainsCat(any(), anyFloat());
+	}
+
+	/**
+	 * A frame whose scan failed has no verdict to keep, so the same frame is classified again.
+	 */
+	@Test
+	public void processImage_scanFailed_sameFrameClassifiedAgain() {
+		securityService.setFrameGate(new FrameDifferenceGate(0.05));
+		when(fakeImageService.imageContainsCat(any(), anyFloat()))
+				.thenThrow(new IllegalStateException("Image service unavailable"))
+				.thenReturn(false);
+		BufferedImage emptyRoom = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+
+		assertThrows(IllegalStateException.class, () -> securityService.processImage(emptyRoom));
+		securityService.processImage(emptyRoom);
+		securityService.processImage(emptyRoom);
+		verify(fakeImageService, times(2)).imageContainsCat(any(), anyFloat());
+	}
+
+	@Test
+	public void processImageAsync_scanFailed_sameFrameClassifiedAgain() {
+		securityService.setFrameGate(new FrameDifferenceGate(0.05));
+		when(fakeImageService.imageContainsCatAsync(any(), anyFloat())).thenReturn(
+				CompletableFuture.failedFuture(new IllegalStateException("Image service unavailable")),
+				CompletableFuture.completedFuture(false));
+		BufferedImage emptyRoom = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+
+		assertTrue(securityService.processImageAsync(emptyRoom).isCompletedExceptionally());
+		securityService.processImageAsync(emptyRoom);
+		securityService.processImageAsync(emptyRoom);
+		verify(fakeImageService, times(2)).imageContainsCatAsync(any(), anyFloat());
+	}
+
+	/**
+	 * One camera showing a cat keeps the alarm on even when another camera shows an empty room.
+	 */
+	@Test
+	public void cameraRegistry_oneOfTwoCamerasSeesCat_alarmKept() {
+		BufferedImage catImage = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+		BufferedImage emptyRoom = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+		when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+		when(fakeImageService.imageContainsCat(eq(catImage), anyFloat())).thenReturn(true);
+		when(fakeImageService.imageContainsCat(eq(emptyRoom), anyFloat())).thenReturn(false);
+		CameraRegistry cameras = new CameraRegistry(securityService, Runnable::run);
+
+		cameras.register("garage").submit(catImage);
+		cameras.register("hall").submit(emptyRoom);
+
+		verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+		verify(securityRepository, never()).setAlarmStatus(AlarmStatus.NO_ALARM);
+	}
+
+	/**
+	 * Alarm status changes are counted by their from and to state.
+	 */
+	@Test
+	public void metrics_sensorActivatedTwiceWhileArmed_transitionsCounted() {
+		when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+		when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+
+		securityService.changeSensorActivationStatus(sensor, true);
+		securityService.changeSensorActivationStatus(new Sensor("window", SensorType.WINDOW), true);
+
+		assertEquals(Map.of("NO_ALARM->PENDING_ALARM", 1L, "PENDING_ALARM->ALARM", 1L),
+				securityService.getMetrics().getAlarmTransitions());
+		assertEquals(4, securityService.getMetrics().getRepositoryWriteLatency().getCount());
+	}
+
+	/**
+	 * Creating the service reads nothing from the repository, and the image service is only created
+	 * once the first image arrives.
+	 */
+	@Test
+	public void startup_beforeFirstImage_nothingLoaded() {
+		LazyImageService lazyImageService = new LazyImageService(() -> fakeImageService);
+		SecurityService service = new SecurityService(securityRepository, lazyImageService);
+		service.addStatusListener(statusListener);
+
+		verifyNoInteractions(securityRepository);
+		assertFalse(lazyImageService.isInitialized());
+
+		service.processImage(new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB));
+		assertTrue(lazyImageService.isInitialized());
+		verify(fakeImageService).imageContainsCat(any(), anyFloat());
+	}
+
+	@Test
+	public void load_readsRepositoryOnceBeforeFirstUse() {
+		when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+		securityService.load();
+		securityService.load();
+
+		assertEquals(ArmingStatus.ARMED_HOME, securityService.getArmingStatus());
+		verify(securityRepository, times(1)).getSensors();
+		verify(securityRepository, times(1)).getArmingStatus();
+	}
+
+	/**
+	 * A sensor in an armed zone only raises that zone's alarm, and the whole-house status follows the worst zone.
+	 */
+	@Test
+	public void zones_sensorActivatedInArmedZone_onlyThatZonePending() {
+		when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.DISARMED);
+		when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+		Sensor garageDoor = new Sensor("Garage door", SensorType.DOOR, "Garage");
+
+		securityService.setArmingStatus("Garage", ArmingStatus.ARMED_AWAY);
+		securityService.changeSensorActivationStatus(sensor, true);
+		securityService.changeSensorActivationStatus(garageDoor, true);
+
+		assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus("Garage"));
+		assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus(Sensor.DEFAULT_ZONE));
+		assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+		verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.PENDING_ALARM);
+	}
 }
@@ -0,0 +1,67 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ZoneTest {
+
+	private final AtomicIntegerArray tally = new AtomicIntegerArray(AlarmStatus.values().length);
+
+	@Test
+	public void setAlarmStatus_zonesMoveBetweenCounts() {
+		Zone garage = new Zone("Garage", ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, tally);
+		Zone attic = new Zone("Attic", ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, tally);
+
+		garage.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+		attic.setAlarmStatus(AlarmStatus.ALARM);
+		attic.setAlarmStatus(AlarmStatus.ALARM);
+
+		assertEquals(0, tally.get(AlarmStatus.NO_ALARM.ordinal()));
+		assertEquals(1, tally.get(AlarmStatus.PENDING_ALARM.ordinal()));
+		assertEquals(1, tally.get(AlarmStatus.ALARM.ordinal()));
+		assertEquals(AlarmStatus.ALARM, Zone.mostSevereAlarmStatus(tally));
+		attic.setAlarmStatus(AlarmStatus.NO_ALARM);
+		assertEquals(AlarmStatus.PENDING_ALARM, Zone.mostSevereAlarmStatus(tally));
+	}
+
+	@Test
+	public void mostSevereAlarmStatus_emptyTally_null() {
+		assertNull(Zone.mostSevereAlarmStatus(tally));
+	}
+
+	/**
+	 * A zone moving between pending and alarm while another sits in no alarm must never read as no alarm.
+	 */
+	@Test
+	public void mostSevereAlarmStatus_zoneMovingBetweenStatuses_neverNoAlarm() throws InterruptedException {
+		new Zone("Garden", ArmingStatus.ARMED_AWAY, AlarmStatus.NO_ALARM, tally);
+		Zone zone = new Zone("House", ArmingStatus.ARMED_AWAY, AlarmStatus.PENDING_ALARM, tally);
+		AtomicReference<AlarmStatus> leastSevere = new AtomicReference<>(AlarmStatus.ALARM);
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread reader = new Thread(() -> {
+			do {
+				AlarmStatus status = Zone.mostSevereAlarmStatus(tally);
+				if (status.ordinal() < leastSevere.get().ordinal()) {
+					leastSevere.set(status);
+				}
+			} while (running.get());
+		});
+		reader.start();
+
+		for (int i = 0; i < 200_000; i++) {
+			zone.setAlarmStatus(i % 2 == 0 ? AlarmStatus.ALARM : AlarmStatus.PENDING_ALARM);
+		}
+		running.set(false);
+		reader.join();
+
+		assertEquals(AlarmStatus.PENDING_ALARM, leastSevere.get());
+	}
+}
@@ -0,0 +1,65 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of arming a system with many sensors. Arming deactivates every sensor, so before each call the
+ * system is disarmed and a share of the sensors is activated again, outside the measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ArmingBenchmark {
+
+	@Param({"100", "10000", "100000"})
+	private int sensorCount;
+
+	@Param({"0", "10", "100"})
+	private int activePercent;
+
+	private SecurityService securityService;
+	private Sensor[] sensors;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		securityService = new SecurityService(new InMemorySecurityRepository(), new FakeImageService());
+		sensors = Sensors.create(sensorCount);
+		for (Sensor sensor : sensors) {
+			securityService.addSensor(sensor);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void disarmAndActivate() {
+		securityService.setArmingStatus(ArmingStatus.DISARMED);
+		int active = sensors.length * activePercent / 100;
+		for (int i = 0; i < active; i++) {
+			securityService.changeSensorActivationStatus(sensors[i], true);
+		}
+	}
+
+	@Benchmark
+	public void setArmingStatus() {
+		securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+	}
+}
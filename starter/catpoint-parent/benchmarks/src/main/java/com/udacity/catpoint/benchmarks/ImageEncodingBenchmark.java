@@ -0,0 +1,116 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.AsyncAwsImageService;
+import com.udacity.catpoint.image.service.JpegImageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of a Rekognition scan: encoding the frame and building the request. The Rekognition
+ * client is replaced by one that answers immediately, so no network or credentials are involved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ImageEncodingBenchmark {
+
+	@Param({"640x480", "1920x1080", "3840x2160"})
+	private String frameSize;
+
+	private BufferedImage frame;
+	private JpegImageEncoder encoder;
+	private AsyncAwsImageService imageService;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] size = frameSize.split("x");
+		frame = noisyFrame(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+		encoder = new JpegImageEncoder(1024, 0.85f);
+		imageService = new AsyncAwsImageService(new ImmediateRekognitionClient(), 64, 1_000_000_000, 1_000_000, encoder);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		imageService.close();
+	}
+
+	@Benchmark
+	public byte[] encode() throws IOException {
+		return encoder.encode(frame);
+	}
+
+	@Benchmark
+	public boolean imageContainsCat() {
+		return imageService.imageContainsCat(frame, 50.0f);
+	}
+
+	/**
+	 * A frame with shapes and noise, so the JPEG encoder has realistic work to do.
+	 */
+	private static BufferedImage noisyFrame(int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Random random = new Random(42);
+		Graphics2D g = image.createGraphics();
+		try {
+			for (int i = 0; i < 200; i++) {
+				g.setColor(new Color(random.nextInt(0xffffff)));
+				g.fillOval(random.nextInt(width), random.nextInt(height), random.nextInt(width / 4) + 1, random.nextInt(height / 4) + 1);
+			}
+		} finally {
+			g.dispose();
+		}
+		for (int i = 0; i < width * height / 8; i++) {
+			image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt(0xffffff));
+		}
+		return image;
+	}
+
+	/**
+	 * Answers every request at once with a single cat label.
+	 */
+	private static class ImmediateRekognitionClient implements RekognitionAsyncClient {
+		private final DetectLabelsResponse response = DetectLabelsResponse.builder()
+				.labels(Label.builder().name("Cat").confidence(99.0f).build())
+				.build();
+
+		@Override
+		public CompletableFuture<DetectLabelsResponse> detectLabels(DetectLabelsRequest request) {
+			return CompletableFuture.completedFuture(response);
+		}
+
+		@Override
+		public String serviceName() {
+			return SERVICE_NAME;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Repository that keeps everything in memory, so service benchmarks measure the service and not
+ * the storage. Sensors are kept in a TreeSet like the real repositories.
+ */
+public class InMemorySecurityRepository implements SecurityRepository {
+
+	private final Set<Sensor> sensors = new TreeSet<>();
+	private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+	private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+	@Override
+	public synchronized void addSensor(Sensor sensor) {
+		sensors.add(sensor);
+	}
+
+	@Override
+	public synchronized void removeSensor(Sensor sensor) {
+		sensors.remove(sensor);
+	}
+
+	@Override
+	public synchronized void updateSensor(Sensor sensor) {
+		sensors.remove(sensor);
+		sensors.add(sensor);
+	}
+
+	@Override
+	public synchronized Set<Sensor> getSensors() {
+		return new TreeSet<>(sensors);
+	}
+
+	@Override
+	public synchronized AlarmStatus getAlarmStatus() {
+		return alarmStatus;
+	}
+
+	@Override
+	public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+		this.alarmStatus = alarmStatus;
+	}
+
+	@Override
+	public synchronized ArmingStatus getArmingStatus() {
+		return armingStatus;
+	}
+
+	@Override
+	public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+		this.armingStatus = armingStatus;
+	}
+}
@@ -0,0 +1,84 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence cost of {@link PretendDatabaseSecurityRepositoryImpl} as the number of stored sensors grows,
+ * in write-through and write-behind mode.
+ *
+ * Preferences are redirected to target/prefs so runs neither read nor overwrite the real application
+ * state. The redirect only applies to the file-based preferences used on Linux.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.prefs.userRoot=target/prefs")
+@State(Scope.Thread)
+public class RepositoryBenchmark {
+
+	@Param({"10", "1000", "10000"})
+	private int sensorCount;
+
+	@Param({"true", "false"})
+	private boolean writeBehind;
+
+	private PretendDatabaseSecurityRepositoryImpl repository;
+	private Sensor[] sensors;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		repository = writeBehind
+				? new PretendDatabaseSecurityRepositoryImpl(100, 1000)
+				: new PretendDatabaseSecurityRepositoryImpl();
+		for (Sensor stale : new ArrayList<>(repository.getSensors())) {
+			repository.removeSensor(stale);
+		}
+		sensors = Sensors.create(sensorCount);
+		for (Sensor sensor : sensors) {
+			repository.addSensor(sensor);
+		}
+		if (writeBehind) {
+			repository.flush();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		for (Sensor sensor : sensors) {
+			repository.removeSensor(sensor);
+		}
+		if (writeBehind) {
+			repository.shutdown();
+		}
+	}
+
+	/**
+	 * Persists a change to one sensor.
+	 */
+	@Benchmark
+	public void updateSensor() {
+		Sensor sensor = sensors[next];
+		next = next + 1 == sensors.length ? 0 : next + 1;
+		sensor.setActive(!sensor.getActive());
+		repository.updateSensor(sensor);
+	}
+}
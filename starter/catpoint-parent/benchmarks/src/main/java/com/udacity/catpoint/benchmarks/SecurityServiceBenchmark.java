@@ -0,0 +1,63 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sensor changes and arming changes in {@link SecurityService} as the number of sensors grows.
+ * The repository is in memory, so only the service and the sensor collections are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SecurityServiceBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	private int sensorCount;
+
+	@Param({"DISARMED", "ARMED_AWAY"})
+	private ArmingStatus armingStatus;
+
+	private SecurityService securityService;
+	private Sensor[] sensors;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		securityService = new SecurityService(new InMemorySecurityRepository(), new FakeImageService());
+		sensors = Sensors.create(sensorCount);
+		for (Sensor sensor : sensors) {
+			securityService.addSensor(sensor);
+		}
+		securityService.setArmingStatus(armingStatus);
+	}
+
+	/**
+	 * Flips one sensor per call, walking through all sensors so the sets are not always touched at the same spot.
+	 */
+	@Benchmark
+	public void changeSensorActivationStatus() {
+		Sensor sensor = sensors[next];
+		next = next + 1 == sensors.length ? 0 : next + 1;
+		securityService.changeSensorActivationStatus(sensor, !sensor.getActive());
+	}
+}
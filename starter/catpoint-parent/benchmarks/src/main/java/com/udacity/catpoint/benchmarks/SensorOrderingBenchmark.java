@@ -0,0 +1,73 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Sensor#compareTo(Sensor)} and of the TreeSet operations built on it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorOrderingBenchmark {
+
+	@Param({"100", "10000", "1000000"})
+	private int sensorCount;
+
+	private Sensor[] sensors;
+	private TreeSet<Sensor> sensorSet;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		sensors = Sensors.create(sensorCount);
+		sensorSet = new TreeSet<>();
+		for (Sensor sensor : sensors) {
+			sensorSet.add(sensor);
+		}
+	}
+
+	private Sensor nextSensor() {
+		Sensor sensor = sensors[next];
+		next = next + 1 == sensors.length ? 0 : next + 1;
+		return sensor;
+	}
+
+	@Benchmark
+	public int compareTo() {
+		return nextSensor().compareTo(sensors[sensors.length / 2]);
+	}
+
+	@Benchmark
+	public boolean contains() {
+		return sensorSet.contains(nextSensor());
+	}
+
+	/**
+	 * What repositories did on every sensor update before {@link SensorStore}: remove and re-add the same sensor.
+	 */
+	@Benchmark
+	public boolean removeAndAdd() {
+		Sensor sensor = nextSensor();
+		sensorSet.remove(sensor);
+		return sensorSet.add(sensor);
+	}
+}
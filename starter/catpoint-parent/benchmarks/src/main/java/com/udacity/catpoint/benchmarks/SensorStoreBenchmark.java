@@ -0,0 +1,90 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorStore;
+import com.udacity.catpoint.security.data.SensorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@link SensorStore} operations repositories use, to compare with the TreeSet in
+ * {@link SensorOrderingBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorStoreBenchmark {
+
+	@Param({"100", "10000", "1000000"})
+	private int sensorCount;
+
+	private Sensor[] sensors;
+	private SensorStore store;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		sensors = Sensors.create(sensorCount);
+		store = new SensorStore(sensorCount);
+		for (Sensor sensor : sensors) {
+			store.put(sensor);
+		}
+	}
+
+	private Sensor nextSensor() {
+		Sensor sensor = sensors[next];
+		next = next + 1 == sensors.length ? 0 : next + 1;
+		return sensor;
+	}
+
+	/**
+	 * What repositories do on every sensor update.
+	 */
+	@Benchmark
+	public int put() {
+		Sensor sensor = nextSensor();
+		sensor.setActive(!sensor.getActive());
+		return store.put(sensor);
+	}
+
+	@Benchmark
+	public boolean toggle() {
+		Sensor sensor = nextSensor();
+		int slot = store.slotOf(sensor.getSensorId());
+		return store.setActive(slot, !store.isActive(slot));
+	}
+
+	@Benchmark
+	public int countActive() {
+		return store.getActiveCount(SensorType.DOOR);
+	}
+
+	/**
+	 * Visits every active sensor, reading its type.
+	 */
+	@Benchmark
+	public int walkActive() {
+		int doors = 0;
+		for (int slot = store.nextActive(0); slot >= 0; slot = store.nextActive(slot + 1)) {
+			if (store.getSensorType(slot) == SensorType.DOOR) {
+				doors++;
+			}
+		}
+		return doors;
+	}
+}
@@ -0,0 +1,25 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+/**
+ * Builds the sensor sets the benchmarks run against.
+ */
+final class Sensors {
+
+	private Sensors() {
+	}
+
+	/**
+	 * Creates inactive sensors with distinct names and a mix of types, named the way an install would name them.
+	 */
+	static Sensor[] create(int count) {
+		SensorType[] types = SensorType.values();
+		Sensor[] sensors = new Sensor[count];
+		for (int i = 0; i < count; i++) {
+			sensors[i] = new Sensor("Sensor " + i, types[i % types.length]);
+		}
+		return sensors;
+	}
+}